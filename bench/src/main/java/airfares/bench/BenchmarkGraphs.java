@@ -0,0 +1,49 @@
+// Shared setup for the benchmarks: resolves the data directory and turns
+// a network parameter into a graph. "dot" is the DOT airfare report;
+// a number is a synthetic RouteNetwork with that many airports.
+
+package airfares.bench;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import airfares.CSVtoGraph;
+import airfares.MyGraph;
+
+
+
+public class BenchmarkGraphs {
+
+    /** Routes per airport in synthetic networks, close to the DOT data. */
+    public static final int ROUTES_PER_AIRPORT = 16;
+
+    /**
+     * Returns the directory holding the airfare data, taken from the
+     * airfare.data system property and defaulting to ../data
+     * @return the data directory
+     */
+    public static String dataDir() {
+        return System.getProperty("airfare.data", "../data");
+    }
+
+    /**
+     * Returns the path of the DOT airfare report
+     * @return the CSV file
+     */
+    public static String csvFile() {
+        return Paths.get(dataDir(), "2017_Q2_airfare.csv").toString();
+    }
+
+    /**
+     * Builds the graph named by a benchmark parameter
+     * @param network "dot" or a number of synthetic airports
+     * @return the graph
+     * @throws IOException if the DOT report cannot be read
+     */
+    public static MyGraph load(String network) throws IOException {
+        if ("dot".equals(network)) {
+            return CSVtoGraph.readGraph(csvFile());
+        }
+        return RouteNetwork.generate(Integer.parseInt(network), ROUTES_PER_AIRPORT, 42).toGraph();
+    }
+}
@@ -0,0 +1,42 @@
+package airfares.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import airfares.CSVtoGraph;
+import airfares.MyGraph;
+
+/**
+ * Cost of building a MyGraph, from the DOT CSV report and from the edge
+ * arrays of synthetic networks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphBuildBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int airports;
+
+    private RouteNetwork network;
+
+    @Setup
+    public void setUp() {
+        network = RouteNetwork.generate(airports, BenchmarkGraphs.ROUTES_PER_AIRPORT, 42);
+    }
+
+    @Benchmark
+    public MyGraph fromCsv() throws IOException {
+        return CSVtoGraph.readGraph(BenchmarkGraphs.csvFile());
+    }
+
+    @Benchmark
+    public MyGraph fromArrays() {
+        return network.toGraph();
+    }
+}
@@ -0,0 +1,66 @@
+package airfares.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import airfares.MyGraph;
+import airfares.Path;
+import airfares.Vertex;
+import airfares.VertexOrder;
+
+/**
+ * Dijkstra queries between random airport pairs with the vertices in
+ * their original order and renumbered by each VertexOrder. Run with
+ * -prof perfnorm (Linux, perf installed) to see cache misses per query.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphLayoutBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    @Param({"10000", "100000"})
+    public String network;
+
+    @Param({"ORIGINAL", "BFS", "REVERSE_CUTHILL_MCKEE", "DEGREE_DESCENDING"})
+    public String layout;
+
+    private MyGraph graph;
+    private Vertex[] origins;
+    private Vertex[] destinations;
+
+    @Setup
+    public void setUp() throws IOException {
+        MyGraph original = BenchmarkGraphs.load(network);
+        graph = "ORIGINAL".equals(layout) ? original : original.reordered(VertexOrder.valueOf(layout));
+        // the same pairs under every layout
+        List<Vertex> vertices = new ArrayList<>(original.vertices());
+        Random random = new Random(7);
+        origins = new Vertex[PAIRS];
+        destinations = new Vertex[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            origins[i] = graph.vertex(vertices.get(random.nextInt(vertices.size())).getLabel());
+            destinations[i] = graph.vertex(vertices.get(random.nextInt(vertices.size())).getLabel());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public Path randomPair(Cursor cursor) {
+        int i = cursor.next++ & (PAIRS - 1);
+        return graph.shortestPath(origins[i], destinations[i]);
+    }
+}
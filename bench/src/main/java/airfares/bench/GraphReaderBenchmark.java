@@ -0,0 +1,43 @@
+package airfares.bench;
+
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import airfares.Edge;
+import airfares.GraphReader;
+import airfares.Vertex;
+
+/**
+ * Parse throughput of the vertices.txt and edges.txt text formats.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphReaderBenchmark {
+
+    private final GraphReader reader = new GraphReader();
+    private String vertexFile;
+    private String edgeFile;
+
+    @Setup
+    public void setUp() {
+        vertexFile = Paths.get(BenchmarkGraphs.dataDir(), "vertices.txt").toString();
+        edgeFile = Paths.get(BenchmarkGraphs.dataDir(), "edges.txt").toString();
+    }
+
+    @Benchmark
+    public Collection<Vertex> readVertex() {
+        return reader.readVertex(vertexFile);
+    }
+
+    @Benchmark
+    public Collection<Edge> readEdges() {
+        return reader.readEdges(edgeFile);
+    }
+}
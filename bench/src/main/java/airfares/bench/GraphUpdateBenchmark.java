@@ -0,0 +1,116 @@
+package airfares.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import airfares.Edge;
+import airfares.MyGraph;
+import airfares.Path;
+import airfares.Vertex;
+
+/**
+ * Cost of a fare update on a graph with cached shortest-path trees:
+ * updating the edges in place and repairing the trees, against building
+ * the graph again from edge arrays and computing the same trees.
+ * Each invocation reprices a batch of random routes by 10%, and the next
+ * one puts the old fares back, so the graph does not drift.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphUpdateBenchmark {
+
+    private static final int CACHED_ORIGINS = 32;
+
+    @Param({"dot", "10000"})
+    public String network;
+
+    @Param({"1", "64"})
+    public int batch;
+
+    private MyGraph graph;
+    private Vertex[] origins;
+    private Vertex destination;
+    private List<List<Edge>> updates; // raised fares, then the old ones
+
+    // the same graph as edge arrays, for rebuilding
+    private List<String> labels;
+    private int[] from;
+    private int[] to;
+    private int[] fare;
+    private int[][] updatedFares; // fare with each update applied
+    private int turn;
+
+    @Setup
+    public void setUp() throws IOException {
+        graph = BenchmarkGraphs.load(network);
+        List<Vertex> vertices = new ArrayList<>(graph.vertices());
+        List<Edge> edges = new ArrayList<>(graph.edges());
+        Random random = new Random(7);
+        origins = new Vertex[CACHED_ORIGINS];
+        for (int i = 0; i < CACHED_ORIGINS; i++) {
+            origins[i] = vertices.get(random.nextInt(vertices.size()));
+        }
+        destination = vertices.get(0);
+
+        labels = new ArrayList<>();
+        Map<Vertex, Integer> index = new HashMap<>();
+        for (Vertex v : vertices) {
+            index.put(v, labels.size());
+            labels.add(v.getLabel());
+        }
+        int m = edges.size();
+        from = new int[m];
+        to = new int[m];
+        fare = new int[m];
+        for (int i = 0; i < m; i++) {
+            from[i] = index.get(edges.get(i).getSource());
+            to[i] = index.get(edges.get(i).getDestination());
+            fare[i] = edges.get(i).getWeight();
+        }
+
+        List<Edge> raised = new ArrayList<>();
+        List<Edge> restored = new ArrayList<>();
+        int[] raisedFares = fare.clone();
+        for (int k = 0; k < batch; k++) {
+            int i = random.nextInt(m);
+            Edge e = edges.get(i);
+            raisedFares[i] = e.getWeight() + e.getWeight() / 10 + 1;
+            raised.add(new Edge(e.getSource(), e.getDestination(), raisedFares[i]));
+            restored.add(e);
+        }
+        updates = List.of(raised, restored);
+        updatedFares = new int[][] {raisedFares, fare};
+
+        for (Vertex origin : origins) {
+            graph.cachedPath(origin, destination); // fill the tree cache
+        }
+    }
+
+    @Benchmark
+    public long updateAndRepair() {
+        graph.updateEdges(updates.get(turn++ & 1), Collections.emptyList());
+        return graph.pathCache().repairCount();
+    }
+
+    @Benchmark
+    public Path rebuildAndRecompute() {
+        MyGraph rebuilt = new MyGraph(labels, from, to, updatedFares[turn++ & 1], from.length);
+        Path last = null;
+        for (Vertex origin : origins) {
+            last = rebuilt.cachedPath(rebuilt.vertex(origin.getLabel()), rebuilt.vertex(destination.getLabel()));
+        }
+        return last;
+    }
+}
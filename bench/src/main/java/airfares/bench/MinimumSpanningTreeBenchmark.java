@@ -0,0 +1,55 @@
+package airfares.bench;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import airfares.Edge;
+import airfares.MyGraph;
+
+/**
+ * Time to compute the minimum spanning tree (forest) of a network, with
+ * sequential Kruskal and with parallel Boruvka on a number of threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MinimumSpanningTreeBenchmark {
+
+    @Param({"dot", "10000", "100000"})
+    public String network;
+
+    private MyGraph graph;
+
+    @State(Scope.Benchmark)
+    public static class Sort {
+        @Param({"false", "true"})
+        public boolean parallelSort;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Workers {
+        @Param({"1", "2", "4", "8"})
+        public int threads;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        graph = BenchmarkGraphs.load(network);
+    }
+
+    @Benchmark
+    public Set<Edge> kruskal(Sort sort) {
+        return graph.getMinimumSpanningTreeEdges(sort.parallelSort);
+    }
+
+    @Benchmark
+    public Set<Edge> boruvka(Workers workers) {
+        return graph.getMinimumSpanningTreeEdges(workers.threads);
+    }
+}
@@ -0,0 +1,117 @@
+// A RouteNetwork class generates synthetic airline route networks for the
+// benchmarks. Airports get random coordinates in a unit square; a few of
+// them are hubs. Every airport flies to some of its nearest neighbors and
+// to hubs chosen in proportion to hub size, so degrees are skewed the way
+// real networks are. Fares grow with distance plus noise. The same size
+// and seed always give the same network.
+
+package airfares.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import airfares.MyGraph;
+
+
+
+/**
+ * A generated route network kept as labels and parallel edge arrays.
+ */
+public class RouteNetwork {
+
+    public final List<String> labels;
+    public final int[] from;
+    public final int[] to;
+    public final int[] fare;
+    public final int routes;
+
+    private RouteNetwork(List<String> labels, int[] from, int[] to, int[] fare, int routes) {
+        this.labels = labels;
+        this.from = from;
+        this.to = to;
+        this.fare = fare;
+        this.routes = routes;
+    }
+
+    /**
+     * Generates a network
+     * @param airports the number of airports
+     * @param routesPerAirport the number of outgoing routes of each airport
+     * @param seed seed of the random generator
+     * @return the network
+     */
+    public static RouteNetwork generate(int airports, int routesPerAirport, long seed) {
+        Random random = new Random(seed);
+        double[] x = new double[airports];
+        double[] y = new double[airports];
+        for (int i = 0; i < airports; i++) {
+            x[i] = random.nextDouble();
+            y[i] = random.nextDouble();
+        }
+        // sorting by x lets nearby airports be found in a small window
+        Integer[] byX = new Integer[airports];
+        for (int i = 0; i < airports; i++) {
+            byX[i] = i;
+        }
+        Arrays.sort(byX, (a, b) -> Double.compare(x[a], x[b]));
+        int[] rankX = new int[airports];
+        for (int r = 0; r < airports; r++) {
+            rankX[byX[r]] = r;
+        }
+
+        int hubs = Math.max(1, airports / 50);
+        double[] hubWeight = new double[hubs + 1]; // cumulative, hub h has weight 1/(h+1)
+        for (int h = 0; h < hubs; h++) {
+            hubWeight[h + 1] = hubWeight[h] + 1.0 / (h + 1);
+        }
+
+        int capacity = airports * routesPerAirport;
+        int[] from = new int[capacity];
+        int[] to = new int[capacity];
+        int[] fare = new int[capacity];
+        Set<Long> seen = new HashSet<>();
+        int m = 0;
+        int window = Math.max(8, 4 * routesPerAirport);
+        for (int a = 0; a < airports; a++) {
+            int want = Math.min(routesPerAirport, airports - 1);
+            for (int tries = 0; tries < 8 * want && want > 0; tries++) {
+                int b;
+                if (random.nextBoolean()) {
+                    double pick = random.nextDouble() * hubWeight[hubs];
+                    int h = Arrays.binarySearch(hubWeight, pick);
+                    b = Math.min(hubs - 1, h >= 0 ? h : -h - 2);
+                } else {
+                    int r = rankX[a] + random.nextInt(2 * window + 1) - window;
+                    b = byX[Math.max(0, Math.min(airports - 1, r))];
+                }
+                if (b == a || !seen.add((long) a * airports + b)) {
+                    continue;
+                }
+                double d = Math.hypot(x[a] - x[b], y[a] - y[b]);
+                from[m] = a;
+                to[m] = b;
+                fare[m] = 60 + (int) (d * 900) + random.nextInt(80);
+                m++;
+                want--;
+            }
+        }
+
+        List<String> labels = new ArrayList<>(airports);
+        for (int i = 0; i < airports; i++) {
+            labels.add("A" + i);
+        }
+        return new RouteNetwork(labels, from, to, fare, m);
+    }
+
+    /**
+     * Builds a MyGraph of this network
+     * @return the graph
+     */
+    public MyGraph toGraph() {
+        return new MyGraph(labels, from, to, fare, routes);
+    }
+}
@@ -0,0 +1,64 @@
+package airfares.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import airfares.MyGraph;
+import airfares.Path;
+import airfares.SearchStrategy;
+import airfares.Vertex;
+
+/**
+ * Throughput and latency distribution of shortestPath between random
+ * airport pairs, per network and search strategy.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShortestPathBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    @Param({"dot", "10000", "100000"})
+    public String network;
+
+    @Param({"DIJKSTRA", "BIDIRECTIONAL", "LANDMARK", "CONTRACTION_HIERARCHY"})
+    public SearchStrategy strategy;
+
+    private MyGraph graph;
+    private Vertex[] origins;
+    private Vertex[] destinations;
+
+    @Setup
+    public void setUp() throws IOException {
+        graph = BenchmarkGraphs.load(network);
+        List<Vertex> vertices = new ArrayList<>(graph.vertices());
+        Random random = new Random(7);
+        origins = new Vertex[PAIRS];
+        destinations = new Vertex[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            origins[i] = vertices.get(random.nextInt(vertices.size()));
+            destinations[i] = vertices.get(random.nextInt(vertices.size()));
+        }
+        graph.shortestPath(origins[0], destinations[0], strategy); // build lazy tables
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public Path randomPair(Cursor cursor) {
+        int i = cursor.next++ & (PAIRS - 1);
+        return graph.shortestPath(origins[i], destinations[i], strategy);
+    }
+}
@@ -0,0 +1,133 @@
+// An AStarSearch class answers point-to-point queries with A* search,
+// ordering the heap by cost so far plus a Landmarks lower bound on the
+// remaining cost, so it settles vertices in the direction of the target
+// first. Vertices that the landmarks prove cannot reach the target are
+// never queued. An instance keeps its scratch arrays between runs and is
+// not thread-safe.
+
+/**
+ * Reusable goal-directed (ALT) search over a CSRGraph.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class AStarSearch {
+
+    private static final int INFINITY = DijkstraSearch.INFINITY;
+
+    private final CSRGraph graph;
+    private final Landmarks landmarks;
+    private final int[] dist;  // cost from the source
+    private final int[] pred;  // predecessor of each vertex, -1 for none
+    private final int[] stamp; // run in which dist/pred were last written
+    private final IndexedMinHeap heap;
+    private int epoch;
+    private int settled;
+    private int relaxed;
+
+    /**
+     * Creates a search with scratch space for every vertex of graph
+     * @param graph the graph to search
+     * @param landmarks landmark tables computed for graph
+     */
+    public AStarSearch(CSRGraph graph, Landmarks landmarks) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        int n = graph.vertexCount();
+        dist = new int[n];
+        pred = new int[n];
+        stamp = new int[n];
+        heap = new IndexedMinHeap(n);
+    }
+
+    /**
+     * Finds the cheapest cost from source to target
+     * @param source the starting vertex id
+     * @param target the destination vertex id
+     * @return the cost, or DijkstraSearch.INFINITY if target is not reachable
+     */
+    public int run(int source, int target) {
+        if (++epoch == 0) { // stamps wrapped around, start over
+            java.util.Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        heap.clear();
+        settled = 0;
+        relaxed = 0;
+
+        stamp[source] = epoch;
+        dist[source] = 0;
+        pred[source] = -1;
+        if (landmarks.unreachable(source, target)) {
+            return INFINITY;
+        }
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+        heap.offer(source, landmarks.lowerBound(source, target));
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            settled++;
+            if (u == target) {
+                return dist[u];
+            }
+            int d = dist[u];
+            relaxed += offsets[u + 1] - offsets[u];
+            for (int i = offsets[u], end = offsets[u + 1]; i < end; i++) {
+                int v = targets[i];
+                int nd = d + weights[i];
+                if (stamp[v] != epoch || nd < dist[v]) {
+                    stamp[v] = epoch;
+                    dist[v] = nd;
+                    pred[v] = u;
+                    if (landmarks.unreachable(v, target)) {
+                        continue; // a dead end for this target
+                    }
+                    // a vertex may be queued again if its cost improves
+                    heap.offer(v, nd + landmarks.lowerBound(v, target));
+                }
+            }
+        }
+        return INFINITY;
+    }
+
+    /**
+     * Return the cost of v found by the last run
+     * @param v a vertex id
+     * @return the cost from the source to v, or INFINITY if v was not reached
+     */
+    public int dist(int v) {
+        return stamp[v] == epoch ? dist[v] : INFINITY;
+    }
+
+    /**
+     * Return the predecessor of v on the path found by the last run
+     * @param v a vertex id
+     * @return the vertex before v, or -1 if v is the source or not reached
+     */
+    public int pred(int v) {
+        return stamp[v] == epoch ? pred[v] : -1;
+    }
+
+    /**
+     * Return the number of vertices settled by the last run
+     * @return the number of vertices removed from the heap
+     */
+    public int settledCount() {
+        return settled;
+    }
+
+    /**
+     * Return the number of edges relaxed by the last run
+     * @return the number of out-edges scanned from settled vertices
+     */
+    public int relaxedCount() {
+        return relaxed;
+    }
+
+    /**
+     * Return the number of heap operations of the last run
+     * @return the inserts, decrease-keys and polls of the last run
+     */
+    public int heapOperationCount() {
+        return heap.operationCount();
+    }
+}
@@ -1,66 +1,262 @@
-import java.util.*;
-
-public class AirportGraph {
-
-    public static void main(String[] args) {
-  		CSVtoGraph.main();
-
-    	if(args.length != 1) {
-            System.err.println("USAGE: [-m | -p]");
-            System.exit(1);
-        }
-        String f1 = "vertices.txt"; // vertex file
-        String f2 = "edges.txt"; // edge file
-        String opt = args[0]; // MST or shortest path
-        if((!"-m".equals(opt)) & (!"-p".equals(opt))) {
-            System.err.println("INPUT: requires -m or -p");
-            System.exit(1);
-        }
-
-        GraphReader graphReader = new GraphReader();
-        Collection<Vertex> vertices = graphReader.readVertex(f1);
-        Collection<Edge> edges = graphReader.readEdges(f2);
-        MyGraph graph = new MyGraph(vertices, edges);
-        
-        Set<Vertex> uniqueV = new HashSet<Vertex>(vertices);
-        Set<Edge> uniqueE = new HashSet<Edge>(edges);
-
-        System.out.println("Airports: "+ uniqueV);
-        System.out.println("<Departure, Arrival, Cost>: "+ uniqueE);
-        
-        if ("-m".equals(opt)) { // MST option
-            Set<Edge> minSpanTreeEdges = graph.getMinimumSpanningTreeEdges();
-//            MyGraph minSpanTreeGraph = new MyGraph(vertices, minSpanTreeEdges);
-            System.out.println("A minimum spanning tree consists of " + minSpanTreeEdges);
-        } else { // Shortest path option
-        	Scanner console = new Scanner(System.in);
-            while(true) {
-                System.out.print("Start airport? ");
-                Vertex a = new Vertex(console.nextLine());
-                if(!vertices.contains(a)) {
-                    System.out.println("no such airport for departure");
-                    System.exit(0);
-                }
-
-                System.out.print("Destination airport? ");
-                Vertex b = new Vertex(console.nextLine());
-                if(!vertices.contains(b)) {
-                    System.out.println("no such airport for arrival");
-                    System.exit(1);
-                }
-
-                // call shortestPath and print out the result
-                Path result = graph.shortestPath(a, b);
-                if (result == null) {
-                    System.out.println("No path from " + a + " to " + b + " exists.");
-                } else {
-                    String printPath = "The cheapest flight from " + (result.vertices).get(0);
-                    for (int i=1; i<(result.vertices).size(); i++) {
-                        printPath += " to " + (result.vertices).get(i);
-                    }
-                    System.out.println(printPath + " costs $" + result.cost + ".");
-                }
-            }
-        }
-    }
-}
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import javax.management.JMException;
+
+public class AirportGraph {
+
+    // binary copy of the graph built from CSVtoGraph.CSV_FILE
+    private static final String SNAPSHOT_FILE = "../data/2017_Q2_airfare.graph";
+
+    // contraction hierarchy of the graph last contracted by -h or -s
+    private static final String HIERARCHY_FILE = "../data/2017_Q2_airfare.ch";
+
+    // directory watched by -s for new or changed DOT reports
+    private static final String DATA_DIR = "../data";
+
+    // DOT reports loaded by -s when one of them changes
+    private static final String REPORT_GLOB = "*_airfare.csv";
+
+    // port of the fare server when -s is given without one
+    private static final int DEFAULT_PORT = 8080;
+
+    // typed at the start airport prompt to print the query metrics
+    private static final String METRICS_COMMAND = "stats";
+
+    // number of itineraries printed by -k
+    private static final int ALTERNATIVES = 10;
+
+    public static void main(String[] args) {
+    	if(args.length < 1 || args.length > 2 || (args.length == 2 && !"-s".equals(args[0]) && !"-m".equals(args[0]))) {
+            System.err.println("USAGE: [-m [threads] | -p | -a | -b | -l | -h | -c | -k | -s [port]]");
+            System.exit(1);
+        }
+        String opt = args[0]; // MST, shortest path by search strategy or table, or server
+        if(!Arrays.asList("-m", "-p", "-a", "-b", "-l", "-h", "-c", "-k", "-s").contains(opt)) {
+            System.err.println("INPUT: requires -m, -p, -a, -b, -l, -h, -c, -k or -s");
+            System.exit(1);
+        }
+
+        MyGraph graph = null;
+        if ("-s".equals(opt)) { // the same merged reports every reload serves
+            try {
+                graph = loadReports();
+            } catch (IOException e) {
+                System.err.print("CSV IOException");
+                e.printStackTrace();
+                System.exit(1);
+            }
+        } else {
+            graph = loadGraph();
+        }
+        GraphReloader reloader = "-s".equals(opt)
+                ? new GraphReloader(graph, Paths.get(DATA_DIR), REPORT_GLOB, AirportGraph::loadReports) : null;
+        try {
+            if (reloader != null) {
+                reloader.register("airports");
+            } else {
+                graph.metrics().register("airports");
+            }
+        } catch (JMException e) {
+            System.err.println("metrics not available over JMX: " + e.getMessage());
+        }
+        if (!"-s".equals(opt)) {
+            graph.metrics().setEnabled(true); // the server turns it on over JMX
+        }
+        if ("-h".equals(opt)) {
+            loadHierarchy(graph);
+        }
+
+        if ("-s".equals(opt)) { // Server option
+            try {
+                int port = args.length == 2 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+                FareServer server = new FareServer(reloader, port);
+                server.start();
+                reloader.start();
+                System.out.println("Serving fares on port " + server.port() + ", reloading when "
+                        + DATA_DIR + "/" + REPORT_GLOB + " changes");
+            } catch (NumberFormatException e) {
+                System.err.println("INPUT: port must be a number");
+                System.exit(1);
+            } catch (IOException e) {
+                System.err.print("Server IOException");
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
+        Collection<Vertex> vertices = graph.vertices();
+
+        Set<Vertex> uniqueV = new HashSet<Vertex>(vertices);
+        Set<Edge> uniqueE = new HashSet<Edge>(graph.edges());
+
+        System.out.println("Airports: "+ uniqueV);
+        System.out.println("<Departure, Arrival, Cost>: "+ uniqueE);
+        
+        if ("-m".equals(opt)) { // MST option, Boruvka on several threads if a count is given
+            Set<Edge> minSpanTreeEdges = null;
+            try {
+                minSpanTreeEdges = args.length == 2 ? graph.getMinimumSpanningTreeEdges(Integer.parseInt(args[1]))
+                        : graph.getMinimumSpanningTreeEdges();
+            } catch (IllegalArgumentException e) { // includes NumberFormatException
+                System.err.println("INPUT: threads must be a positive number");
+                System.exit(1);
+            }
+//            MyGraph minSpanTreeGraph = new MyGraph(vertices, minSpanTreeEdges);
+            System.out.println("A minimum spanning tree consists of " + minSpanTreeEdges);
+        } else { // Shortest path option
+            boolean precomputed = "-a".equals(opt);
+            SearchStrategy strategy = "-b".equals(opt) ? SearchStrategy.BIDIRECTIONAL
+                    : "-l".equals(opt) ? SearchStrategy.LANDMARK
+                    : "-h".equals(opt) ? SearchStrategy.CONTRACTION_HIERARCHY : SearchStrategy.DIJKSTRA;
+            if (precomputed) { // the table is n*n entries, so small graphs only
+                try {
+                    graph.precomputeAllPairs();
+                } catch (IllegalArgumentException e) {
+                    System.err.println("INPUT: -a " + e.getMessage() + "; use -p instead");
+                    System.exit(1);
+                }
+            }
+            System.out.println("(enter " + METRICS_COMMAND + " as the start airport to see query metrics)");
+        	Scanner console = new Scanner(System.in);
+            while(true) {
+                System.out.print("Start airport? ");
+                String departure = console.nextLine();
+                if (METRICS_COMMAND.equals(departure)) {
+                    System.out.print(graph.metrics().dump());
+                    continue;
+                }
+                Vertex a = new Vertex(departure);
+                if(!uniqueV.contains(a)) {
+                    System.out.println("no such airport for departure");
+                    System.exit(0);
+                }
+
+                System.out.print("Destination airport? ");
+                Vertex b = new Vertex(console.nextLine());
+                if(!uniqueV.contains(b)) {
+                    System.out.println("no such airport for arrival");
+                    System.exit(1);
+                }
+
+                if ("-c".equals(opt)) { // every cost/flights/miles trade-off
+                    List<ParetoPath> routes = graph.paretoPaths(a, b);
+                    if (routes.isEmpty()) {
+                        System.out.println("No path from " + a + " to " + b + " exists.");
+                    }
+                    for (ParetoPath route : routes) {
+                        String printPath = "$" + route.cost + ", " + route.hops + " flight(s), "
+                                + route.miles + " miles: " + route.vertices.get(0);
+                        for (int i=1; i<route.vertices.size(); i++) {
+                            printPath += " to " + route.vertices.get(i);
+                        }
+                        System.out.println(printPath);
+                    }
+                    continue;
+                }
+                if ("-k".equals(opt)) { // the cheapest few alternatives
+                    List<Path> routes = graph.kShortestPaths(a, b, ALTERNATIVES);
+                    if (routes.isEmpty()) {
+                        System.out.println("No path from " + a + " to " + b + " exists.");
+                    }
+                    for (Path route : routes) {
+                        String printPath = "$" + route.cost + ": " + route.vertices.get(0);
+                        for (int i=1; i<route.vertices.size(); i++) {
+                            printPath += " to " + route.vertices.get(i);
+                        }
+                        System.out.println(printPath);
+                    }
+                    continue;
+                }
+
+                // call shortestPath and print out the result
+                Path result = precomputed ? graph.lookupPath(a, b) : graph.shortestPath(a, b, strategy);
+                if (result == null) {
+                    System.out.println("No path from " + a + " to " + b + " exists.");
+                } else {
+                    String printPath = "The cheapest flight from " + (result.vertices).get(0);
+                    for (int i=1; i<(result.vertices).size(); i++) {
+                        printPath += " to " + (result.vertices).get(i);
+                    }
+                    System.out.println(printPath + " costs $" + result.cost + ".");
+                }
+            }
+        }
+    }
+
+    // Loads the graph from its snapshot when the snapshot is newer than the
+    // CSV report; otherwise reads the CSV and saves a new snapshot
+    private static MyGraph loadGraph() {
+        java.nio.file.Path csv = Paths.get(CSVtoGraph.CSV_FILE);
+        java.nio.file.Path snapshot = Paths.get(SNAPSHOT_FILE);
+        try {
+            if (Files.exists(snapshot)
+                    && Files.getLastModifiedTime(snapshot).compareTo(Files.getLastModifiedTime(csv)) >= 0) {
+                return GraphSnapshot.read(snapshot);
+            }
+        } catch (IOException e) {
+            System.err.println("ignoring snapshot: " + e.getMessage());
+        }
+
+        MyGraph graph = null;
+        try {
+            graph = CSVtoGraph.readGraph(CSVtoGraph.CSV_FILE);
+        } catch (IOException e) {
+            System.err.print("CSV IOException");
+            e.printStackTrace();
+            System.exit(1);
+        }
+        try {
+            GraphSnapshot.write(graph, snapshot);
+        } catch (IOException e) {
+            System.err.println("could not save snapshot: " + e.getMessage());
+        }
+        return graph;
+    }
+
+    // Builds a graph from every DOT report in the data directory, keeping
+    // each route's lowest fare, and gives it its contraction hierarchy so
+    // -s can publish it ready for hierarchy queries. Builds every graph -s
+    // serves, the first one on the main thread and the rest on the reload
+    // thread.
+    private static MyGraph loadReports() throws IOException {
+        List<String> files = new ArrayList<>();
+        try (DirectoryStream<java.nio.file.Path> reports = Files.newDirectoryStream(Paths.get(DATA_DIR), REPORT_GLOB)) {
+            for (java.nio.file.Path report : reports) {
+                files.add(report.toString());
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IOException("no " + REPORT_GLOB + " reports in " + DATA_DIR);
+        }
+        Collections.sort(files); // oldest first, by the year_quarter prefix
+        MyGraph graph = CSVtoGraph.readGraph(files, FareAggregation.MIN);
+        loadHierarchy(graph);
+        return graph;
+    }
+
+    // Gives graph the contraction hierarchy saved for it, if the saved one
+    // was built from the same edges; otherwise contracts the graph and
+    // saves the new hierarchy
+    private static void loadHierarchy(MyGraph graph) {
+        java.nio.file.Path file = Paths.get(HIERARCHY_FILE);
+        try {
+            if (Files.exists(file)) {
+                ContractionHierarchy ch = ContractionHierarchy.read(file);
+                if (ch.matches(graph.adjacency())) {
+                    graph.useContractionHierarchy(ch);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("ignoring hierarchy: " + e.getMessage());
+        }
+        try {
+            graph.contractionHierarchy().write(file);
+        } catch (IOException e) {
+            System.err.println("could not save hierarchy: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+// An AllPairsTable class precomputes the cheapest cost and the predecessor
+// from every vertex to every other vertex of a CSRGraph. It runs one
+// single-source Dijkstra search per origin on the common fork-join pool
+// and stores the results in two flat n*n int arrays, so a lookup never
+// searches. Memory grows with the square of the number of vertices, and
+// a Java array holds fewer than 2^31 ints, so the table only fits graphs
+// of at most MAX_VERTICES (46,340) vertices.
+
+import java.util.stream.IntStream;
+
+/**
+ * Cheapest-cost and predecessor table for every ordered pair of vertices.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class AllPairsTable {
+
+    /** Largest number of vertices whose n*n table fits in one array. */
+    public static final int MAX_VERTICES = (int) Math.sqrt(Integer.MAX_VALUE - 8);
+
+    private final int n;
+    private final int[] cost;    // cost[a*n+b], INFINITY if unreachable
+    private final int[] pred;    // vertex before b on the path from a, -1 if none
+
+    /**
+     * Creates the table by running one search per origin in parallel
+     * @param graph the graph to precompute
+     * @throws IllegalArgumentException if graph has more than MAX_VERTICES
+     *   vertices
+     */
+    public AllPairsTable(CSRGraph graph) {
+        n = graph.vertexCount();
+        long cells = (long) n * n;
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("all-pairs table needs " + n + " x " + n
+                    + " entries; it supports at most " + MAX_VERTICES + " vertices");
+        }
+        // so every a * n + b below stays under n * n and cannot overflow
+        cost = new int[(int) cells];
+        pred = new int[(int) cells];
+        ThreadLocal<DijkstraSearch> searches =
+                ThreadLocal.withInitial(() -> new DijkstraSearch(graph));
+        IntStream.range(0, n).parallel().forEach(a -> fillRow(searches.get(), a));
+    }
+
+    // Runs a full search from a and writes row a of both tables. The row
+    // keeps a's own shortest-path tree, so a path is rebuilt from one row
+    // and never mixes trees that broke ties between equal costs differently.
+    private void fillRow(DijkstraSearch search, int a) {
+        search.run(a, -1);
+        int row = a * n;
+        for (int v = 0; v < n; v++) {
+            cost[row + v] = search.dist(v);
+            pred[row + v] = search.pred(v);
+        }
+    }
+
+    /**
+     * Return the number of vertices covered by the table
+     * @return the number of vertices
+     */
+    public int vertexCount() {
+        return n;
+    }
+
+    /**
+     * Return the cheapest cost from a to b
+     * @param a origin vertex id
+     * @param b destination vertex id
+     * @return the cost, or DijkstraSearch.INFINITY if b is not reachable
+     */
+    public int cost(int a, int b) {
+        return cost[a * n + b];
+    }
+
+    /**
+     * Return the vertex that comes before b on a cheapest path from a.
+     * Following pred(a, ...) from b always leads back to a.
+     * @param a origin vertex id
+     * @param b destination vertex id
+     * @return the previous vertex, or -1 if b is a or is not reachable
+     */
+    public int pred(int a, int b) {
+        return pred[a * n + b];
+    }
+}
@@ -0,0 +1,174 @@
+// A BidirectionalSearch class answers point-to-point queries by running
+// Dijkstra's algorithm forward from the source over the graph and backward
+// from the target over its reverse, always advancing the side with the
+// smaller tentative cost. It stops once the two frontiers together can no
+// longer beat the best meeting point found. An instance keeps its scratch
+// arrays between runs and is not thread-safe.
+
+/**
+ * Reusable bidirectional Dijkstra search over a CSRGraph and its reverse.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class BidirectionalSearch {
+
+    private static final int INFINITY = DijkstraSearch.INFINITY;
+
+    private final CSRGraph forward;
+    private final CSRGraph backward;
+    private final int[] distF, distB; // cost from the source / to the target
+    private final int[] predF, succB; // next vertex toward source / target
+    private final int[] stampF, stampB;
+    private final IndexedMinHeap heapF, heapB;
+    private int epoch;
+    private int meeting = -1;
+    private int settled;
+    private int relaxed;
+
+    /**
+     * Creates a search with scratch space for every vertex of graph
+     * @param forward the graph to search
+     * @param backward the reverse of forward
+     */
+    public BidirectionalSearch(CSRGraph forward, CSRGraph backward) {
+        if (forward.vertexCount() != backward.vertexCount()) {
+            throw new IllegalArgumentException();
+        }
+        this.forward = forward;
+        this.backward = backward;
+        int n = forward.vertexCount();
+        distF = new int[n];
+        distB = new int[n];
+        predF = new int[n];
+        succB = new int[n];
+        stampF = new int[n];
+        stampB = new int[n];
+        heapF = new IndexedMinHeap(n);
+        heapB = new IndexedMinHeap(n);
+    }
+
+    /**
+     * Finds the cheapest cost from source to target
+     * @param source the starting vertex id
+     * @param target the destination vertex id
+     * @return the cost, or DijkstraSearch.INFINITY if target is not reachable
+     */
+    public int run(int source, int target) {
+        if (++epoch == 0) { // stamps wrapped around, start over
+            java.util.Arrays.fill(stampF, 0);
+            java.util.Arrays.fill(stampB, 0);
+            epoch = 1;
+        }
+        heapF.clear();
+        heapB.clear();
+        settled = 0;
+        relaxed = 0;
+        meeting = -1;
+
+        stampF[source] = epoch;
+        distF[source] = 0;
+        predF[source] = -1;
+        stampB[target] = epoch;
+        distB[target] = 0;
+        succB[target] = -1;
+        if (source == target) {
+            meeting = source;
+            return 0;
+        }
+        heapF.offer(source, 0);
+        heapB.offer(target, 0);
+
+        long best = INFINITY;
+        while (!heapF.isEmpty() && !heapB.isEmpty()) {
+            int topF = heapF.peekKey();
+            int topB = heapB.peekKey();
+            if ((long) topF + topB >= best) {
+                break;
+            }
+            settled++;
+            if (topF <= topB) {
+                int u = heapF.poll();
+                best = relax(forward, u, topF, distF, predF, stampF, heapF, distB, stampB, best);
+            } else {
+                int u = heapB.poll();
+                best = relax(backward, u, topB, distB, succB, stampB, heapB, distF, stampF, best);
+            }
+        }
+        return (int) best;
+    }
+
+    // Relaxes the edges of u on one side and returns the new best cost,
+    // recording the meeting vertex whenever it improves
+    private long relax(CSRGraph g, int u, int d, int[] dist, int[] link, int[] stamp,
+                       IndexedMinHeap heap, int[] otherDist, int[] otherStamp, long best) {
+        relaxed += g.offsets[u + 1] - g.offsets[u];
+        for (int i = g.offsets[u], end = g.offsets[u + 1]; i < end; i++) {
+            int v = g.targets[i];
+            int nd = d + g.weights[i];
+            if (stamp[v] != epoch || nd < dist[v]) {
+                stamp[v] = epoch;
+                dist[v] = nd;
+                link[v] = u;
+                heap.offer(v, nd);
+            }
+            if (otherStamp[v] == epoch && stamp[v] == epoch) {
+                long total = (long) dist[v] + otherDist[v];
+                if (total < best) {
+                    best = total;
+                    meeting = v;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Return the vertex where the cheapest path of the last run joins its
+     * forward and backward halves
+     * @return the meeting vertex, or -1 if no path was found
+     */
+    public int meeting() {
+        return meeting;
+    }
+
+    /**
+     * Return the vertex before v on the forward half of the last path
+     * @param v a vertex on the forward half
+     * @return its predecessor, or -1 for the source
+     */
+    public int forwardPred(int v) {
+        return predF[v];
+    }
+
+    /**
+     * Return the vertex after v on the backward half of the last path
+     * @param v a vertex on the backward half
+     * @return its successor, or -1 for the target
+     */
+    public int backwardSucc(int v) {
+        return succB[v];
+    }
+
+    /**
+     * Return the number of vertices settled by the last run, on both sides
+     * @return the number of vertices removed from the heaps
+     */
+    public int settledCount() {
+        return settled;
+    }
+
+    /**
+     * Return the number of edges relaxed by the last run, on both sides
+     * @return the number of out-edges scanned from settled vertices
+     */
+    public int relaxedCount() {
+        return relaxed;
+    }
+
+    /**
+     * Return the number of heap operations of the last run, on both sides
+     * @return the inserts, decrease-keys and polls of the last run
+     */
+    public int heapOperationCount() {
+        return heapF.operationCount() + heapB.operationCount();
+    }
+}
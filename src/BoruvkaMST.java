@@ -0,0 +1,155 @@
+// A BoruvkaMST class computes a minimum spanning forest of a graph's CSR
+// edges (EdgeArrays) on several threads, treating every directed edge as
+// undirected. Each round
+// labels every vertex with its component root, then scans the edges in
+// chunks, one chunk per task, keeping the cheapest edge that leaves each
+// component as a packed (weight, edge index) long in an AtomicLongArray;
+// a compare-and-set loop only writes smaller values, so the minimum wins
+// whatever the order of the threads. The chosen edges are then merged
+// with a ConcurrentUnionFind. Packing the index in the low bits breaks
+// ties between equal weights, so the chosen edges never close a cycle and
+// the forest has the same weight as Kruskal's. Every round at least
+// halves the number of components that still have a leaving edge. The
+// only per-edge storage is the graph itself: a chunk finds the source of
+// its first edge by binary search and walks the rows from there, so edges
+// kept off the heap stay there.
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel Boruvka's algorithm over CSR edges.
+ */
+public class BoruvkaMST {
+
+    // least number of edges or vertices worth a task of their own
+    private static final int MIN_CHUNK = 1 << 14;
+
+    // cheapest-edge slot of a component that has found no leaving edge
+    private static final long NONE = Long.MAX_VALUE;
+
+    // A task over the index range [from, to)
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+
+    /**
+     * Returns the edges of a minimum spanning forest of graph
+     * Pre: every weight is nonnegative
+     * @param graph the graph, whose edges are taken as undirected
+     * @param threads the number of threads to use
+     * @return the CSR indices of the chosen edges, in no particular order
+     * @throws IllegalArgumentException if threads is less than 1
+     */
+    public static int[] spanningForest(EdgeArrays graph, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        int n = graph.vertexCount();
+        int m = graph.edgeCount();
+        ConcurrentUnionFind sets = new ConcurrentUnionFind(n);
+        int[] component = new int[n];
+        AtomicLongArray cheapest = new AtomicLongArray(n);
+        int[] chosen = new int[Math.max(0, n - 1)];
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService workers = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            while (true) {
+                forRanges(workers, threads, n, (from, to) -> {
+                    for (int v = from; v < to; v++) {
+                        component[v] = sets.find(v);
+                        cheapest.set(v, NONE);
+                    }
+                });
+                forRanges(workers, threads, m, (from, to) -> {
+                    if (from == to) {
+                        return; // no edges
+                    }
+                    int u = graph.source(from);
+                    int rowEnd = graph.rowStart(u + 1);
+                    for (int e = from; e < to; e++) {
+                        while (e >= rowEnd) { // past the row of u
+                            rowEnd = graph.rowStart(++u + 1);
+                        }
+                        int cu = component[u];
+                        int cv = component[graph.target(e)];
+                        if (cu != cv) {
+                            long packed = ((long) graph.weight(e) << 32) | e;
+                            offer(cheapest, cu, packed);
+                            offer(cheapest, cv, packed);
+                        }
+                    }
+                });
+                int before = count.get();
+                forRanges(workers, threads, n, (from, to) -> {
+                    for (int r = from; r < to; r++) {
+                        long packed = cheapest.get(r);
+                        if (packed != NONE) {
+                            int e = (int) packed;
+                            if (sets.union(graph.source(e), graph.target(e))) {
+                                chosen[count.getAndIncrement()] = e;
+                            }
+                        }
+                    }
+                });
+                if (count.get() == before) {
+                    break;
+                }
+            }
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+        }
+        return count.get() == chosen.length ? chosen : Arrays.copyOf(chosen, count.get());
+    }
+
+    // Lowers the cheapest slot of component root to packed if it is smaller
+    private static void offer(AtomicLongArray cheapest, int root, long packed) {
+        long current = cheapest.get(root);
+        while (packed < current && !cheapest.compareAndSet(root, current, packed)) {
+            current = cheapest.get(root);
+        }
+    }
+
+    // Splits [0, size) into about one range per thread and runs task on
+    // each, on workers if there are any and the ranges are large enough
+    private static void forRanges(ExecutorService workers, int threads, int size, RangeTask task) {
+        int tasks = Math.min(threads, Math.max(1, size / MIN_CHUNK));
+        if (workers == null || tasks == 1) {
+            task.run(0, size);
+            return;
+        }
+        List<Callable<Void>> ranges = new ArrayList<>(tasks);
+        for (int k = 0; k < tasks; k++) {
+            int from = (int) ((long) size * k / tasks);
+            int to = (int) ((long) size * (k + 1) / tasks);
+            ranges.add(() -> {
+                task.run(from, to);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : workers.invokeAll(ranges)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
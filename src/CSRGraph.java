@@ -0,0 +1,295 @@
+// A CSRGraph class stores the edges of a directed graph in compressed
+// sparse row form: three flat int arrays indexed by dense vertex ids,
+// so searches can walk the out-edges of a vertex without any boxing
+// or hash lookups.
+
+import java.util.Arrays;
+
+/**
+ * Compressed-sparse-row adjacency of a directed graph with int weights.
+ * The out-edges of vertex v occupy the index range
+ * [offsets[v], offsets[v+1]) of targets and weights, sorted by target.
+ */
+public class CSRGraph implements EdgeArrays {
+
+    final int[] offsets; // row start of each vertex, length n+1
+    final int[] targets; // destination vertex of each edge
+    final int[] weights; // cost of each edge
+
+    /**
+     * Creates a CSRGraph from arrays that are already in CSR form.
+     * The arrays are used as given and not copied.
+     * @param offsets row starts, length is the number of vertices plus one
+     * @param targets destination of each edge
+     * @param weights cost of each edge
+     */
+    public CSRGraph(int[] offsets, int[] targets, int[] weights) {
+        if (targets.length != weights.length
+                || offsets.length == 0 || offsets[offsets.length - 1] != targets.length) {
+            throw new IllegalArgumentException();
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Builds a CSRGraph from an edge list in linear time.
+     * Pre: every source and destination is in [0, n).
+     * Post: the edges of every row are sorted by destination.
+     * @param n number of vertices
+     * @param from source of each edge
+     * @param to destination of each edge
+     * @param w cost of each edge
+     * @param m number of edges used from the arrays
+     * @return the CSR form of the given edges
+     */
+    public static CSRGraph fromEdges(int n, int[] from, int[] to, int[] w, int m) {
+        // counting sort by destination first, then a stable counting sort
+        // by source, which leaves each row ordered by destination
+        int[] byDest = new int[m];
+        int[] count = new int[n + 1];
+        for (int i = 0; i < m; i++) {
+            count[to[i] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            count[i + 1] += count[i];
+        }
+        for (int i = 0; i < m; i++) {
+            byDest[count[to[i]]++] = i;
+        }
+
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < m; i++) {
+            offsets[from[i] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] next = new int[n];
+        System.arraycopy(offsets, 0, next, 0, n);
+        int[] targets = new int[m];
+        int[] weights = new int[m];
+        for (int k = 0; k < m; k++) {
+            int e = byDest[k];
+            int slot = next[from[e]]++;
+            targets[slot] = to[e];
+            weights[slot] = w[e];
+        }
+        return new CSRGraph(offsets, targets, weights);
+    }
+
+    /**
+     * Returns a 64-bit hash of the rows, destinations and weights, so data
+     * derived from this graph and saved elsewhere can be checked against it
+     * @return the fingerprint; equal graphs have equal fingerprints
+     */
+    public long fingerprint() {
+        long h = 0xcbf29ce484222325L;
+        for (int[] array : new int[][] {offsets, targets, weights}) {
+            for (int x : array) {
+                h = (h ^ x) * 0x100000001b3L;
+            }
+            h = (h ^ array.length) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Builds the transpose of this graph, in which every edge a -> b
+     * becomes b -> a with the same cost
+     * @return the reversed graph
+     */
+    public CSRGraph reverse() {
+        return fromEdges(vertexCount(), targets, sources(), weights, edgeCount());
+    }
+
+    /**
+     * Returns this graph without edges that repeat the edge just before
+     * them in a row (same destination and weight). Rows from fromEdges keep
+     * repeats of an input edge next to each other unless an edge with the
+     * same destination and another weight lies between them.
+     * @return a graph without the repeats, or this graph if there are none
+     */
+    public CSRGraph withoutRepeatedEdges() {
+        int n = vertexCount();
+        int kept = 0;
+        int[] newOffsets = new int[n + 1];
+        int[] newTargets = null;
+        int[] newWeights = null;
+        for (int v = 0; v < n; v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                boolean repeat = i > offsets[v] && targets[i] == targets[i - 1]
+                        && weights[i] == weights[i - 1];
+                if (repeat && newTargets == null) { // first repeat, start copying
+                    newTargets = Arrays.copyOf(targets, edgeCount());
+                    newWeights = Arrays.copyOf(weights, edgeCount());
+                }
+                if (!repeat) {
+                    if (newTargets != null) {
+                        newTargets[kept] = targets[i];
+                        newWeights[kept] = weights[i];
+                    }
+                    kept++;
+                }
+            }
+            newOffsets[v + 1] = kept;
+        }
+        if (newTargets == null) {
+            return this;
+        }
+        return new CSRGraph(newOffsets, Arrays.copyOf(newTargets, kept), Arrays.copyOf(newWeights, kept));
+    }
+
+    /**
+     * Returns the source vertex of every edge, i.e. the row each index of
+     * targets and weights belongs to
+     * @return an array parallel to targets holding each edge's source
+     */
+    public int[] sources() {
+        int n = vertexCount();
+        int[] from = new int[edgeCount()];
+        for (int v = 0; v < n; v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                from[i] = v;
+            }
+        }
+        return from;
+    }
+
+    @Override
+    public int vertexCount() {
+        return offsets.length - 1;
+    }
+
+    @Override
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    @Override
+    public int rowStart(int v) {
+        return offsets[v];
+    }
+
+    @Override
+    public int target(int e) {
+        return targets[e];
+    }
+
+    @Override
+    public int weight(int e) {
+        return weights[e];
+    }
+
+    /**
+     * Return the cost of the edge from a to b, or -1 if there is none.
+     * Uses a binary search over the sorted row of a.
+     * @param a source vertex id
+     * @param b destination vertex id
+     * @return cost of edge a -> b, -1 otherwise
+     */
+    public int edgeCost(int a, int b) {
+        int i = edgeIndex(a, b);
+        return i < 0 ? -1 : weights[i];
+    }
+
+    /**
+     * Returns the position of the edge a -> b in targets and weights,
+     * by binary search in a's row
+     * @param a the source vertex id
+     * @param b the destination vertex id
+     * @return the index of the edge, or -1 if there is no such edge
+     */
+    public int edgeIndex(int a, int b) {
+        int lo = offsets[a];
+        int hi = offsets[a + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int t = targets[mid];
+            if (t < b) {
+                lo = mid + 1;
+            } else if (t > b) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a copy of this graph with some edges added, repriced or
+     * removed. Rows without changes are copied in bulk, so the cost is
+     * O(V + E) plus the number of changes.
+     * Pre: the changes are sorted by source and then destination, and no
+     *   pair of vertices appears twice
+     * @param from source vertex of each change
+     * @param to destination vertex of each change
+     * @param cost new weight of each change, or -1 to remove the edge
+     * @param k number of changes used from the arrays
+     * @return the changed graph; this graph is not modified
+     */
+    public CSRGraph withChanges(int[] from, int[] to, int[] cost, int k) {
+        int n = vertexCount();
+        int[] newOffsets = new int[n + 1];
+        int[] newTargets = new int[edgeCount() + k];
+        int[] newWeights = new int[edgeCount() + k];
+        int size = 0;
+        int c = 0;
+        for (int v = 0; v < n; v++) {
+            int i = offsets[v];
+            int end = offsets[v + 1];
+            if (c == k || from[c] != v) { // untouched row
+                System.arraycopy(targets, i, newTargets, size, end - i);
+                System.arraycopy(weights, i, newWeights, size, end - i);
+                size += end - i;
+            } else {
+                for (; c < k && from[c] == v; c++) {
+                    for (; i < end && targets[i] < to[c]; i++) {
+                        newTargets[size] = targets[i];
+                        newWeights[size++] = weights[i];
+                    }
+                    if (i < end && targets[i] == to[c]) {
+                        i++; // replaced or removed
+                    }
+                    if (cost[c] >= 0) {
+                        newTargets[size] = to[c];
+                        newWeights[size++] = cost[c];
+                    }
+                }
+                for (; i < end; i++) {
+                    newTargets[size] = targets[i];
+                    newWeights[size++] = weights[i];
+                }
+            }
+            newOffsets[v + 1] = size;
+        }
+        return new CSRGraph(newOffsets, Arrays.copyOf(newTargets, size), Arrays.copyOf(newWeights, size));
+    }
+
+    /**
+     * Maps values kept per edge of this graph, such as distances, onto the
+     * edges of changed. Edges that only changed has get 0.
+     * Pre: changed has the same vertices as this graph
+     * @param changed a graph made from this one by withChanges
+     * @param values one value per edge of this graph
+     * @return one value per edge of changed
+     */
+    public int[] carryOver(CSRGraph changed, int[] values) {
+        int[] result = new int[changed.edgeCount()];
+        for (int v = 0; v < vertexCount(); v++) {
+            int i = offsets[v];
+            int end = offsets[v + 1];
+            for (int j = changed.offsets[v]; j < changed.offsets[v + 1]; j++) {
+                while (i < end && targets[i] < changed.targets[j]) {
+                    i++;
+                }
+                if (i < end && targets[i] == changed.targets[j]) {
+                    result[j] = values[i];
+                }
+            }
+        }
+        return result;
+    }
+}
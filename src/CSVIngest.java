@@ -0,0 +1,768 @@
+// A CSVIngest class builds one graph from many DOT airfare reports at
+// once. Each file is cut into chunks that begin on record boundaries, so
+// a quoted field that spans lines never straddles two chunks: workers
+// first count the quotes in their share of the file, a running sum of
+// those counts tells whether a share begins inside a quoted field, and
+// each worker then moves its start past the first line break outside
+// quotes. The chunks of every file are parsed in parallel, each into its
+// own airport table and edge buffers. The buffers are merged in file
+// order, so airports keep the numbering a single sequential read would
+// give them, and the records of each directed airport pair are combined
+// by a FareAggregation. Rows and bytes are counted as workers parse, and
+// the rates can be printed once a second while a load runs. An instance
+// runs one load at a time.
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel, chunked reader of DOT airfare reports (Table 1a) into a MyGraph,
+ * or into a PeriodGraph with one fare per route and quarter.
+ */
+public class CSVIngest {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+    private static final int REPORT_ROWS = 1 << 12; // rows parsed between counter updates
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    // the tbl value of the records read; reports may carry other tables
+    private static final byte[] TABLE = "Table 1a".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final FareAggregation policy;
+    private final int threads;
+    private final int chunkSize;
+    private PrintStream progress; // null for a quiet load
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private long elapsed; // nanoseconds taken by the last load
+
+    // Where the needed fields are in the records of one file; -1 if absent
+    private static final class Columns {
+        int table;
+        int departure;
+        int arrival;
+        int fare;
+        int miles;
+        int passengers;
+        int year;
+        int quarter;
+        int width; // fewest fields a usable record has
+    }
+
+    // The records of one chunk, numbered by its own airport table
+    private static final class Chunk {
+        final SymbolTable airports = new SymbolTable();
+        int[] from = new int[1024];
+        int[] to = new int[1024];
+        long[] cents = new long[1024]; // fare in hundredths of a dollar
+        int[] miles = new int[1024];
+        int[] passengers = new int[1024];
+        int[] period = new int[1024];  // 4 * year + quarter, 0 if not reported
+        int size;
+        boolean hasMiles; // whether its file has an nsmiles column
+
+        void grow() {
+            int capacity = from.length * 2;
+            from = Arrays.copyOf(from, capacity);
+            to = Arrays.copyOf(to, capacity);
+            cents = Arrays.copyOf(cents, capacity);
+            miles = Arrays.copyOf(miles, capacity);
+            passengers = Arrays.copyOf(passengers, capacity);
+            period = Arrays.copyOf(period, capacity);
+        }
+    }
+
+    // A channel over the byte range [position, end) of a file. Reads are
+    // positional, so several of them can share one FileChannel.
+    private static final class RangeChannel implements ReadableByteChannel {
+        private final FileChannel file;
+        private final long end;
+        private long position;
+
+        RangeChannel(FileChannel file, long start, long end) {
+            this.file = file;
+            this.position = start;
+            this.end = end;
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int limit = dst.limit();
+            if (dst.remaining() > end - position) {
+                dst.limit(dst.position() + (int) (end - position));
+            }
+            try {
+                int n = file.read(dst, position);
+                if (n > 0) {
+                    position += n;
+                }
+                return n;
+            } finally {
+                dst.limit(limit);
+            }
+        }
+
+        public boolean isOpen() {
+            return file.isOpen();
+        }
+
+        public void close() {
+            // the file is closed by whoever opened it
+        }
+    }
+
+    /**
+     * Creates a quiet ingester with one worker per processor
+     * @param policy how records of the same airport pair are combined
+     */
+    public CSVIngest(FareAggregation policy) {
+        this(policy, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a quiet ingester
+     * Pre: Throws an IllegalArgumentException if threads or chunkSize is
+     not positive.
+     * @param policy how records of the same airport pair are combined
+     * @param threads the number of chunks parsed at once
+     * @param chunkSize about how many bytes of a file one worker parses
+     */
+    public CSVIngest(FareAggregation policy, int threads, int chunkSize) {
+        if (policy == null || threads < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.policy = policy;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Prints rows/s and bytes/s to out once a second during a load, and
+     * once more when it finishes
+     * @param out where to print, or null for a quiet load
+     */
+    public void setProgress(PrintStream out) {
+        progress = out;
+    }
+
+    /**
+     * Reads DOT airfare reports into one graph. Each record becomes a
+     * directed edge from airport_1 to airport_2; the records of one pair,
+     * from any file, are combined by the policy into a single edge whose
+     * weight is the integer part of the combined fare. Its distance is
+     * the nsmiles of the record the policy chose, or of the last record
+     * read for a mean.
+     * @param files the CSV reports, oldest first
+     * @return the graph of all records
+     * @throws IOException if a file cannot be read, is not valid CSV, has
+     *   a malformed number, or lacks the tbl, airport_1, airport_2 or fare
+     *   column
+     */
+    public MyGraph read(List<Path> files) throws IOException {
+        long begin = System.nanoTime();
+        List<Chunk> chunks = parseAll(files, begin);
+        long parsed = System.nanoTime();
+        MyGraph graph = merge(chunks);
+        graph.metrics().recordBuild(GraphMetrics.Phase.CSV_PARSE, parsed - begin);
+        elapsed = System.nanoTime() - begin;
+        return graph;
+    }
+
+    /**
+     * Reads DOT airfare reports into one graph that keeps a separate fare
+     * for every year and quarter in them. Each directed airport pair
+     * becomes one route; its fare in a period is the integer part of the
+     * lowest fare reported for the pair in that period. Records of a file
+     * without Year and quarter columns fall in an "unknown" period.
+     * @param files the CSV reports, in any order
+     * @return the graph of all records, with its periods in time order
+     * @throws IOException if a file cannot be read, is not valid CSV, has
+     *   a malformed number, or lacks the tbl, airport_1, airport_2 or fare
+     *   column
+     */
+    public PeriodGraph readPeriods(List<Path> files) throws IOException {
+        long begin = System.nanoTime();
+        PeriodGraph graph = mergePeriods(parseAll(files, begin));
+        elapsed = System.nanoTime() - begin;
+        return graph;
+    }
+
+    // Splits the files into chunks at record boundaries and parses them
+    // in parallel, returning the chunks in file order
+    private List<Chunk> parseAll(List<Path> files, long begin) throws IOException {
+        rows.reset();
+        bytes.reset();
+        FileChannel[] channels = new FileChannel[files.size()];
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService reporter = null;
+        if (progress != null) {
+            reporter = Executors.newSingleThreadScheduledExecutor();
+            reporter.scheduleAtFixedRate(() -> report(System.nanoTime() - begin), 1, 1, TimeUnit.SECONDS);
+        }
+        try {
+            Columns[] columns = new Columns[files.size()];
+            long[] sizes = new long[files.size()];
+            List<long[]> starts = new ArrayList<>(); // nominal chunk starts of each file
+            for (int f = 0; f < files.size(); f++) {
+                channels[f] = FileChannel.open(files.get(f), StandardOpenOption.READ);
+                sizes[f] = channels[f].size();
+                long headerEnd = recordStart(channels[f], 0, false, sizes[f]);
+                columns[f] = header(channels[f], headerEnd, files.get(f));
+                int count = (int) ((sizes[f] - headerEnd + chunkSize - 1) / chunkSize);
+                long[] nominal = new long[count];
+                for (int j = 0; j < count; j++) {
+                    nominal[j] = headerEnd + (long) j * chunkSize;
+                }
+                starts.add(nominal);
+            }
+
+            // Count the quotes before each nominal start, in parallel
+            List<Callable<Long>> counts = new ArrayList<>();
+            for (int f = 0; f < files.size(); f++) {
+                FileChannel channel = channels[f];
+                long[] nominal = starts.get(f);
+                for (int j = 0; j + 1 < nominal.length; j++) {
+                    long from = nominal[j];
+                    long to = nominal[j + 1];
+                    counts.add(() -> quotes(channel, from, to));
+                }
+            }
+            List<Long> quoteCounts = runAll(workers, counts);
+
+            // Move every start but the first of a file to a record boundary
+            List<Callable<Long>> moves = new ArrayList<>();
+            int q = 0;
+            for (int f = 0; f < files.size(); f++) {
+                FileChannel channel = channels[f];
+                long size = sizes[f];
+                long[] nominal = starts.get(f);
+                long seen = 0;
+                for (int j = 0; j < nominal.length; j++) {
+                    long from = nominal[j];
+                    boolean quoted = (seen & 1) != 0;
+                    moves.add(j == 0 ? () -> from : () -> recordStart(channel, from, quoted, size));
+                    if (j + 1 < nominal.length) {
+                        seen += quoteCounts.get(q++);
+                    }
+                }
+            }
+            List<Long> boundaries = runAll(workers, moves);
+
+            // Parse every chunk of every file
+            List<Callable<Chunk>> parses = new ArrayList<>();
+            int b = 0;
+            for (int f = 0; f < files.size(); f++) {
+                FileChannel channel = channels[f];
+                Path file = files.get(f);
+                Columns cols = columns[f];
+                int count = starts.get(f).length;
+                for (int j = 0; j < count; j++, b++) {
+                    long from = boundaries.get(b);
+                    long to = j + 1 < count ? boundaries.get(b + 1) : sizes[f];
+                    parses.add(() -> parse(channel, file, cols, from, to));
+                }
+            }
+            return runAll(workers, parses);
+        } finally {
+            workers.shutdownNow();
+            if (reporter != null) {
+                reporter.shutdownNow();
+                report(System.nanoTime() - begin);
+            }
+            for (FileChannel channel : channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the number of records parsed by the last load, so far if it
+     * is still running
+     * @return the number of records
+     */
+    public long rowsRead() {
+        return rows.sum();
+    }
+
+    /**
+     * Return the number of bytes parsed by the last load, so far if it is
+     * still running; headers are not counted
+     * @return the number of bytes
+     */
+    public long bytesRead() {
+        return bytes.sum();
+    }
+
+    /**
+     * Return how long the last completed load took
+     * @return its duration in nanoseconds
+     */
+    public long elapsedNanos() {
+        return elapsed;
+    }
+
+    // Prints the counters and rates after nanos of loading
+    private void report(long nanos) {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        long r = rows.sum();
+        long n = bytes.sum();
+        progress.printf("ingest: %,d rows (%,.0f rows/s), %,.1f MB (%,.1f MB/s)%n",
+                r, r / seconds, n / 1e6, n / 1e6 / seconds);
+    }
+
+    // Runs the tasks on workers and returns their results in task order
+    private static <T> List<T> runAll(ExecutorService workers, List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : workers.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return results;
+    }
+
+    // Finds the needed columns in the header record, which ends at headerEnd
+    private static Columns header(FileChannel channel, long headerEnd, Path file) throws IOException {
+        CSVTokenizer csv = new CSVTokenizer(new RangeChannel(channel, 0, headerEnd), BUFFER_SIZE);
+        if (!csv.nextRecord()) {
+            throw new IOException(file + ": empty file");
+        }
+        Columns cols = new Columns();
+        cols.table = column(csv, "tbl", file);
+        cols.departure = column(csv, "airport_1", file);
+        cols.arrival = column(csv, "airport_2", file);
+        cols.fare = column(csv, "fare", file);
+        cols.miles = optionalColumn(csv, "nsmiles");
+        cols.passengers = optionalColumn(csv, "passengers");
+        cols.year = optionalColumn(csv, "Year");
+        cols.quarter = optionalColumn(csv, "quarter");
+        if (cols.year < 0 || cols.quarter < 0) {
+            cols.year = -1; // a period needs both
+            cols.quarter = -1;
+        }
+        int[] all = {cols.table, cols.departure, cols.arrival, cols.fare, cols.miles, cols.passengers, cols.year, cols.quarter};
+        for (int col : all) {
+            cols.width = Math.max(cols.width, col + 1);
+        }
+        return cols;
+    }
+
+    // Returns the index of the named column in the header record
+    private static int column(CSVTokenizer csv, String name, Path file) throws IOException {
+        int col = optionalColumn(csv, name);
+        if (col < 0) {
+            throw new IOException(file + ": no " + name + " column");
+        }
+        return col;
+    }
+
+    // Returns the index of the named column in the header record, or -1
+    private static int optionalColumn(CSVTokenizer csv, String name) {
+        for (int i = 0; i < csv.fieldCount(); i++) {
+            if (name.equals(csv.field(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Returns the number of quote bytes in [from, to) of the file
+    private static long quotes(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] a = buf.array();
+        long count = 0;
+        for (long p = from; p < to; ) {
+            buf.clear();
+            if (to - p < BUFFER_SIZE) {
+                buf.limit((int) (to - p));
+            }
+            int n = channel.read(buf, p);
+            if (n < 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (a[i] == QUOTE) {
+                    count++;
+                }
+            }
+            p += n;
+        }
+        return count;
+    }
+
+    // Returns where the first record after position from begins, given
+    // whether from lies inside a quoted field, or size if none does. A
+    // record ends at a line break (LF, CRLF or a lone CR) outside quotes;
+    // a doubled quote inside a quoted field toggles the state twice.
+    private static long recordStart(FileChannel channel, long from, boolean quoted, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] a = buf.array();
+        boolean afterCR = false;
+        for (long p = from; p < size; ) {
+            buf.clear();
+            int n = channel.read(buf, p);
+            if (n < 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                byte c = a[i];
+                if (afterCR && c != LF) {
+                    return p + i; // a lone CR ended the record
+                }
+                afterCR = false;
+                if (c == QUOTE) {
+                    quoted = !quoted;
+                } else if (!quoted && c == LF) {
+                    return p + i + 1;
+                } else if (!quoted && c == CR) {
+                    afterCR = true;
+                }
+            }
+            p += n;
+        }
+        return size;
+    }
+
+    // Parses the records in [from, to) of the file into a new chunk
+    private Chunk parse(FileChannel channel, Path file, Columns cols, long from, long to) throws IOException {
+        Chunk chunk = new Chunk();
+        chunk.hasMiles = cols.miles >= 0;
+        int bufferSize = (int) Math.max(1, Math.min(BUFFER_SIZE, to - from));
+        CSVTokenizer csv = new CSVTokenizer(new RangeChannel(channel, from, to), bufferSize);
+        int pending = 0;
+        long counted = 0;
+        while (csv.nextRecord()) {
+            if (csv.fieldCount() < cols.width) {
+                continue; // blank or truncated line
+            }
+            byte[] buf = csv.buffer();
+            if (!Arrays.equals(buf, csv.fieldStart(cols.table), csv.fieldEnd(cols.table), TABLE, 0, TABLE.length)) {
+                continue; // a record of another table
+            }
+            int r = chunk.size;
+            if (r == chunk.from.length) {
+                chunk.grow();
+            }
+            chunk.from[r] = chunk.airports.intern(buf, csv.fieldStart(cols.departure),
+                    csv.fieldEnd(cols.departure) - csv.fieldStart(cols.departure));
+            chunk.to[r] = chunk.airports.intern(buf, csv.fieldStart(cols.arrival),
+                    csv.fieldEnd(cols.arrival) - csv.fieldStart(cols.arrival));
+            try {
+                chunk.cents[r] = csv.decimalField(cols.fare, 2);
+                chunk.miles[r] = cols.miles < 0 ? 0 : csv.intField(cols.miles);
+                chunk.passengers[r] = cols.passengers < 0 ? 0 : csv.intField(cols.passengers);
+                chunk.period[r] = cols.year < 0 ? 0 : 4 * csv.intField(cols.year) + csv.intField(cols.quarter);
+            } catch (NumberFormatException e) {
+                throw new IOException(file + ": bad number \"" + e.getMessage() + "\" in the record at byte "
+                        + (from + csv.recordOffset()), e);
+            }
+            chunk.size++;
+            if (++pending == REPORT_ROWS) {
+                rows.add(pending);
+                bytes.add(csv.bytesRead() - counted);
+                pending = 0;
+                counted = csv.bytesRead();
+            }
+        }
+        rows.add(pending);
+        bytes.add(csv.bytesRead() - counted);
+        return chunk;
+    }
+
+    // The records of all chunks, numbered by one airport table
+    private static final class Records {
+        final SymbolTable airports = new SymbolTable();
+        int[] from;
+        int[] to;
+        int[] record; // k at position k, so a stable sort can carry it
+        long[] cents;
+        int[] miles;
+        int[] passengers;
+        int[] period;
+        int size;
+        boolean hasMiles;
+    }
+
+    // Renumbers the chunks' records by one airport table, in chunk order
+    private static Records renumber(List<Chunk> chunks) {
+        int m = 0;
+        for (Chunk chunk : chunks) {
+            m += chunk.size;
+        }
+        Records all = new Records();
+        all.from = new int[m];
+        all.to = new int[m];
+        all.record = new int[m];
+        all.cents = new long[m];
+        all.miles = new int[m];
+        all.passengers = new int[m];
+        all.period = new int[m];
+        all.size = m;
+        int k = 0;
+        for (Chunk chunk : chunks) {
+            all.hasMiles |= chunk.hasMiles;
+            int[] ids = new int[chunk.airports.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = all.airports.intern(chunk.airports.label(i));
+            }
+            for (int r = 0; r < chunk.size; r++, k++) {
+                all.from[k] = ids[chunk.from[r]];
+                all.to[k] = ids[chunk.to[r]];
+                all.record[k] = k;
+            }
+            System.arraycopy(chunk.cents, 0, all.cents, k - chunk.size, chunk.size);
+            System.arraycopy(chunk.miles, 0, all.miles, k - chunk.size, chunk.size);
+            System.arraycopy(chunk.passengers, 0, all.passengers, k - chunk.size, chunk.size);
+            System.arraycopy(chunk.period, 0, all.period, k - chunk.size, chunk.size);
+        }
+        return all;
+    }
+
+    // Returns the labels of the airports in id order
+    private static List<String> labels(SymbolTable airports) {
+        List<String> labels = new ArrayList<>(airports.size());
+        for (int i = 0; i < airports.size(); i++) {
+            labels.add(airports.label(i));
+        }
+        return labels;
+    }
+
+    // Renumbers the chunks' records by one airport table, in chunk order,
+    // and combines the records of each directed pair into one edge
+    private MyGraph merge(List<Chunk> chunks) {
+        long begin = System.nanoTime();
+        Records all = renumber(chunks);
+        int m = all.size;
+        long[] cents = all.cents;
+        int[] miles = all.miles;
+        int[] passengers = all.passengers;
+        int[] period = all.period;
+
+        long interned = System.nanoTime();
+
+        // The counting sort is stable, so with record numbers as weights
+        // each run of one pair lists its records in the order they were read
+        int n = all.airports.size();
+        CSRGraph sorted = CSRGraph.fromEdges(n, all.from, all.to, all.record, m);
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        int[] weights = new int[m];
+        int[] distances = new int[m];
+        int kept = 0;
+        for (int v = 0; v < n; v++) {
+            int end = sorted.offsets[v + 1];
+            for (int i = sorted.offsets[v]; i < end; ) {
+                int j = i + 1;
+                while (j < end && sorted.targets[j] == sorted.targets[i]) {
+                    j++;
+                }
+                long fare;
+                int chosen = sorted.weights[j - 1]; // record whose miles are kept
+                if (policy == FareAggregation.MIN) {
+                    chosen = sorted.weights[i];
+                    for (int e = i + 1; e < j; e++) {
+                        if (cents[sorted.weights[e]] < cents[chosen]) {
+                            chosen = sorted.weights[e];
+                        }
+                    }
+                    fare = cents[chosen];
+                } else if (policy == FareAggregation.LATEST) {
+                    chosen = sorted.weights[i];
+                    for (int e = i + 1; e < j; e++) {
+                        if (period[sorted.weights[e]] >= period[chosen]) {
+                            chosen = sorted.weights[e];
+                        }
+                    }
+                    fare = cents[chosen];
+                } else {
+                    long weighted = 0;
+                    long sum = 0;
+                    long travelers = 0;
+                    for (int e = i; e < j; e++) {
+                        int r = sorted.weights[e];
+                        weighted += cents[r] * passengers[r];
+                        sum += cents[r];
+                        travelers += passengers[r];
+                    }
+                    fare = travelers > 0 ? weighted / travelers : sum / (j - i);
+                }
+                targets[kept] = sorted.targets[i];
+                weights[kept] = Math.toIntExact(fare / 100);
+                distances[kept] = miles[chosen];
+                kept++;
+                i = j;
+            }
+            offsets[v + 1] = kept;
+        }
+
+        CSRGraph adjacency = new CSRGraph(offsets, Arrays.copyOf(targets, kept), Arrays.copyOf(weights, kept));
+        MyGraph graph = new MyGraph(labels(all.airports), adjacency, all.hasMiles ? Arrays.copyOf(distances, kept) : null);
+        graph.metrics().recordBuild(GraphMetrics.Phase.VERTEX_INTERNING, interned - begin);
+        graph.metrics().recordBuild(GraphMetrics.Phase.ADJACENCY_BUILD, System.nanoTime() - interned);
+        return graph;
+    }
+
+    // Renumbers the chunks' records and makes each directed pair one
+    // route, with its lowest fare in every period it was reported in
+    private static PeriodGraph mergePeriods(List<Chunk> chunks) {
+        Records all = renumber(chunks);
+        int m = all.size;
+        int[] keys = IntStream.of(all.period).distinct().sorted().toArray();
+        List<String> periods = new ArrayList<>(keys.length);
+        for (int key : keys) {
+            int year = (key - 1) / 4;
+            periods.add(key == 0 ? "unknown" : year + "Q" + (key - 4 * year));
+        }
+
+        int n = all.airports.size();
+        CSRGraph sorted = CSRGraph.fromEdges(n, all.from, all.to, all.record, m);
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        int routes = 0;
+        for (int v = 0; v < n; v++) {
+            for (int i = sorted.offsets[v]; i < sorted.offsets[v + 1]; i++) {
+                if (i == sorted.offsets[v] || sorted.targets[i] != sorted.targets[i - 1]) {
+                    targets[routes++] = sorted.targets[i];
+                }
+            }
+            offsets[v + 1] = routes;
+        }
+        int[][] fares = new int[keys.length][routes];
+        for (int[] column : fares) {
+            Arrays.fill(column, PeriodGraph.NO_FARE);
+        }
+        int route = -1;
+        for (int v = 0; v < n; v++) {
+            for (int i = sorted.offsets[v]; i < sorted.offsets[v + 1]; i++) {
+                if (i == sorted.offsets[v] || sorted.targets[i] != sorted.targets[i - 1]) {
+                    route++;
+                }
+                int r = sorted.weights[i];
+                int[] column = fares[Arrays.binarySearch(keys, all.period[r])];
+                column[route] = Math.min(column[route], Math.toIntExact(all.cents[r] / 100));
+            }
+        }
+        return new PeriodGraph(labels(all.airports), periods, offsets, Arrays.copyOf(targets, routes), fares);
+    }
+
+    /**
+     * Loads DOT airfare reports, printing progress to standard error, and
+     * optionally saves the graph as a snapshot. With -periods the fares of
+     * each year and quarter are kept apart and summarized instead; with
+     * -order the airports are renumbered for memory locality before saving.
+     * @param args [-min | -latest | -mean | -periods] [-order bfs | rcm | degree]
+     *   [-t threads] [-o snapshot] file...
+     */
+    public static void main(String[] args) {
+        FareAggregation policy = FareAggregation.MIN;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String snapshot = null;
+        boolean byPeriod = false;
+        VertexOrder order = null;
+        List<Path> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-min".equals(args[i])) {
+                    policy = FareAggregation.MIN;
+                } else if ("-latest".equals(args[i])) {
+                    policy = FareAggregation.LATEST;
+                } else if ("-mean".equals(args[i])) {
+                    policy = FareAggregation.PASSENGER_WEIGHTED_MEAN;
+                } else if ("-periods".equals(args[i])) {
+                    byPeriod = true;
+                } else if ("-order".equals(args[i]) && i + 1 < args.length) {
+                    String name = args[++i];
+                    order = "bfs".equals(name) ? VertexOrder.BFS
+                            : "rcm".equals(name) ? VertexOrder.REVERSE_CUTHILL_MCKEE
+                            : "degree".equals(name) ? VertexOrder.DEGREE_DESCENDING : null;
+                    if (order == null) {
+                        throw new NumberFormatException(name); // not an order, print usage
+                    }
+                } else if ("-t".equals(args[i]) && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if ("-o".equals(args[i]) && i + 1 < args.length) {
+                    snapshot = args[++i];
+                } else {
+                    files.add(Paths.get(args[i]));
+                }
+            }
+        } catch (NumberFormatException e) {
+            files.clear();
+        }
+        if (files.isEmpty() || threads < 1) {
+            System.err.println("USAGE: [-min | -latest | -mean | -periods] [-order bfs | rcm | degree]"
+                    + " [-t threads] [-o snapshot] file...");
+            System.exit(1);
+        }
+
+        CSVIngest ingest = new CSVIngest(policy, threads, DEFAULT_CHUNK_SIZE);
+        ingest.setProgress(System.err);
+        try {
+            if (byPeriod) {
+                PeriodGraph graph = ingest.readPeriods(files);
+                System.out.println(graph.vertices().size() + " airports, " + graph.routeCount()
+                        + " routes in " + graph.periods().size() + " periods from " + ingest.rowsRead()
+                        + " records in " + ingest.elapsedNanos() / 1000000 + " ms");
+                for (PeriodGraph.Summary summary : graph.summaries()) {
+                    System.out.println(summary);
+                }
+                return;
+            }
+            MyGraph graph = ingest.read(files);
+            System.out.println(graph.vertices().size() + " airports, " + graph.adjacency().edgeCount()
+                    + " routes from " + ingest.rowsRead() + " records in "
+                    + ingest.elapsedNanos() / 1000000 + " ms");
+            if (order != null) {
+                double before = GraphLayout.meanEdgeSpan(graph.adjacency());
+                long started = System.nanoTime();
+                graph = graph.reordered(order);
+                System.out.printf("renumbered by %s in %d ms, mean edge span %.1f -> %.1f%n", order,
+                        (System.nanoTime() - started) / 1000000, before, GraphLayout.meanEdgeSpan(graph.adjacency()));
+            }
+            if (snapshot != null) {
+                GraphSnapshot.write(graph, Paths.get(snapshot));
+            }
+        } catch (IOException e) {
+            System.err.print("CSV IOException");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
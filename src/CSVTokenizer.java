@@ -0,0 +1,306 @@
+// A CSVTokenizer class splits a byte stream into RFC 4180 records and
+// fields. Quoted fields may contain commas, doubled quotes and line
+// breaks. The bytes of the current record are kept in one reusable
+// buffer and its fields are exposed as offsets into it, so reading a
+// file allocates nothing once the buffers have grown to the widest record.
+// Fields are treated as single-byte text (ASCII or Latin-1).
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming, quote-aware CSV reader over a ReadableByteChannel.
+ */
+public class CSVTokenizer {
+
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer in;  // bytes read from the channel
+    private boolean eof;
+    private long bytesRead;
+    private long recordOffset; // input offset of the current record's first byte
+
+    private byte[] record = new byte[256]; // unescaped bytes of the current record
+    private int[] starts = new int[32];    // start of each field in record
+    private int[] ends = new int[32];      // end (exclusive) of each field in record
+    private int fields;
+
+    /**
+     * Creates a tokenizer reading from channel
+     * @param channel the source of CSV bytes
+     * @param bufferSize the number of bytes to read from channel at a time
+     */
+    public CSVTokenizer(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.in = ByteBuffer.allocate(bufferSize);
+        in.flip(); // start empty
+    }
+
+    // Return the next byte, or -1 at the end of the input
+    private int read() throws IOException {
+        if (!in.hasRemaining()) {
+            if (eof) {
+                return -1;
+            }
+            in.clear();
+            int n;
+            do {
+                n = channel.read(in);
+            } while (n == 0);
+            in.flip();
+            if (n < 0) {
+                eof = true;
+                return -1;
+            }
+            bytesRead += n;
+        }
+        return in.get() & 0xff;
+    }
+
+    /**
+     * Reads the next record.
+     * Post: fieldCount and the field accessors describe the new record.
+     * @return false if the input is exhausted
+     * @throws IOException if reading fails or a quoted field is not closed
+     */
+    public boolean nextRecord() throws IOException {
+        int len = 0;
+        fields = 0;
+        recordOffset = bytesRead - in.remaining();
+        int c = read();
+        if (c < 0) {
+            return false;
+        }
+        while (true) {
+            int start = len;
+            if (c == QUOTE) {
+                // quoted field: runs to the next quote not followed by a quote
+                while (true) {
+                    c = read();
+                    if (c < 0) {
+                        throw new IOException("unterminated quoted field");
+                    }
+                    if (c == QUOTE) {
+                        c = read();
+                        if (c != QUOTE) {
+                            break;
+                        }
+                    }
+                    if (len == record.length) {
+                        record = Arrays.copyOf(record, len * 2);
+                    }
+                    record[len++] = (byte) c;
+                }
+                // anything between the closing quote and the separator is kept
+                while (c >= 0 && c != COMMA && c != LF && c != CR) {
+                    if (len == record.length) {
+                        record = Arrays.copyOf(record, len * 2);
+                    }
+                    record[len++] = (byte) c;
+                    c = read();
+                }
+            } else {
+                while (c >= 0 && c != COMMA && c != LF && c != CR) {
+                    if (len == record.length) {
+                        record = Arrays.copyOf(record, len * 2);
+                    }
+                    record[len++] = (byte) c;
+                    c = read();
+                }
+            }
+            addField(start, len);
+            if (c == COMMA) {
+                c = read();
+                continue;
+            }
+            if (c == CR) {
+                c = read();
+                if (c != LF && c >= 0) { // lone CR ends the record too
+                    in.position(in.position() - 1);
+                }
+            }
+            return true;
+        }
+    }
+
+    private void addField(int start, int end) {
+        if (fields == starts.length) {
+            starts = Arrays.copyOf(starts, fields * 2);
+            ends = Arrays.copyOf(ends, fields * 2);
+        }
+        starts[fields] = start;
+        ends[fields] = end;
+        fields++;
+    }
+
+    /**
+     * Return the number of fields in the current record
+     * @return the number of fields
+     */
+    public int fieldCount() {
+        return fields;
+    }
+
+    /**
+     * Return the total number of bytes read from the channel so far
+     * @return the number of bytes read
+     */
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Return where the current record starts in the input
+     * @return the number of input bytes before the record's first byte
+     */
+    public long recordOffset() {
+        return recordOffset;
+    }
+
+    /**
+     * Return the buffer holding the bytes of the current record. Field i
+     * occupies [fieldStart(i), fieldEnd(i)). The buffer is overwritten
+     * by the next call to nextRecord.
+     * @return the record buffer
+     */
+    public byte[] buffer() {
+        return record;
+    }
+
+    /**
+     * Return where field i starts in the record buffer
+     * @param i a field index
+     * @return the start offset of field i
+     */
+    public int fieldStart(int i) {
+        checkField(i);
+        return starts[i];
+    }
+
+    /**
+     * Return where field i ends in the record buffer
+     * @param i a field index
+     * @return the end offset (exclusive) of field i
+     */
+    public int fieldEnd(int i) {
+        checkField(i);
+        return ends[i];
+    }
+
+    /**
+     * Return field i as a String. Allocates; meant for headers and labels.
+     * @param i a field index
+     * @return the text of field i
+     */
+    public String field(int i) {
+        checkField(i);
+        return new String(record, starts[i], ends[i] - starts[i],
+                StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Parses field i as a decimal number and returns its integer part,
+     * truncated toward zero as (int) Double.parseDouble would.
+     * @param i a field index
+     * @return the integer part of field i
+     * @throws NumberFormatException if field i is not a decimal number
+     */
+    public int intField(int i) {
+        checkField(i);
+        int p = starts[i];
+        int end = ends[i];
+        boolean negative = false;
+        if (p < end && (record[p] == '-' || record[p] == '+')) {
+            negative = record[p] == '-';
+            p++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (p < end && record[p] >= '0' && record[p] <= '9') {
+            value = value * 10 + (record[p++] - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw new NumberFormatException(field(i));
+            }
+            digits++;
+        }
+        if (p < end && record[p] == '.') {
+            p++;
+            while (p < end && record[p] >= '0' && record[p] <= '9') {
+                p++;
+                digits++;
+            }
+        }
+        if (p != end || digits == 0) {
+            throw new NumberFormatException(field(i));
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Parses field i as a decimal number and returns it scaled by
+     * 10^places, with further digits truncated toward zero; 241.457 with
+     * two places is 24145.
+     * @param i a field index
+     * @param places the number of fraction digits kept, 0 to 9
+     * @return field i times 10^places
+     * @throws NumberFormatException if field i is not a decimal number
+     *   or does not fit in a long once scaled
+     */
+    public long decimalField(int i, int places) {
+        checkField(i);
+        int p = starts[i];
+        int end = ends[i];
+        boolean negative = false;
+        if (p < end && (record[p] == '-' || record[p] == '+')) {
+            negative = record[p] == '-';
+            p++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (p < end && record[p] >= '0' && record[p] <= '9') {
+            if (value > (Long.MAX_VALUE - 9) / 10) {
+                throw new NumberFormatException(field(i));
+            }
+            value = value * 10 + (record[p++] - '0');
+            digits++;
+        }
+        int kept = 0;
+        if (p < end && record[p] == '.') {
+            p++;
+            while (p < end && record[p] >= '0' && record[p] <= '9') {
+                if (kept < places) {
+                    if (value > (Long.MAX_VALUE - 9) / 10) {
+                        throw new NumberFormatException(field(i));
+                    }
+                    value = value * 10 + (record[p] - '0');
+                    kept++;
+                }
+                p++;
+                digits++;
+            }
+        }
+        if (p != end || digits == 0) {
+            throw new NumberFormatException(field(i));
+        }
+        for (; kept < places; kept++) {
+            if (value > Long.MAX_VALUE / 10) {
+                throw new NumberFormatException(field(i));
+            }
+            value *= 10;
+        }
+        return negative ? -value : value;
+    }
+
+    private void checkField(int i) {
+        if (i < 0 || i >= fields) {
+            throw new IndexOutOfBoundsException("field " + i + " of " + fields);
+        }
+    }
+}
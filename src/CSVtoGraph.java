@@ -1,70 +1,82 @@
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
-
-public class CSVtoGraph {
-
-    public static void main() {
-
-        String csvFile = "../data/2017_Q2_airfare.csv";
-        BufferedReader br = null;
-        String line = "";
-        String cvsSplitBy = ",";
-        HashSet<String> vertices = new HashSet<String>();
-        
-        try {
-        	FileWriter v_writer = new FileWriter("vertices.txt", true);
-        	FileWriter eg_writer = new FileWriter("edges.txt", true);
-        	
-            br = new BufferedReader(new FileReader(csvFile));
-            while ((line = br.readLine()) != null) {
-                // ignore header
-            	if (line.contains("Table 1a")) {
-	            	// use comma as separator
-	                String[] country = line.split(cvsSplitBy);
-	                String departure = country[11];
-	                String arrival = country[12];
-	                
-	                vertices.add(departure);
-	                vertices.add(arrival);
-	                
-	                eg_writer.write(departure);
-	                eg_writer.write("\n");
-	                eg_writer.write(arrival);
-	                eg_writer.write("\n");
-	                eg_writer.write(country[15]); // flight fare
-	                eg_writer.write("\n");
-                }
-            }
-            
-            Iterator<String> iterator = vertices.iterator();
-            while(iterator.hasNext()) {
-            	v_writer.write(iterator.next());
-            	v_writer.write("\n");
-            }
-            v_writer.close();
-            eg_writer.close();
-
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            if (br != null) {
-                try {
-                    br.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-        
-    }
-
-}
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class CSVtoGraph {
+
+    public static final String CSV_FILE = "../data/2017_Q2_airfare.csv";
+
+    /**
+     * Writes vertices.txt and edges.txt from the default DOT report, for
+     * use with GraphReader. Existing files are overwritten.
+     */
+    public static void main() {
+        try {
+            MyGraph graph = readGraph(CSV_FILE);
+            try (FileWriter v_writer = new FileWriter("vertices.txt", false);
+                 FileWriter eg_writer = new FileWriter("edges.txt", false)) {
+                for (Vertex v : graph.vertices()) {
+                    v_writer.write(v.getLabel());
+                    v_writer.write("\n");
+                }
+                eg_writer.write(graph.toString());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads a DOT airfare report (Table 1a) and builds the graph from it.
+     * Each record becomes a directed edge from airport_1 to airport_2
+     * whose weight is the integer part of fare, with the integer part of
+     * nsmiles as its distance when the report has that column. If a pair
+     * appears more than once, its lowest fare is kept.
+     * @param csvFile path of the CSV report
+     * @return the graph of the report
+     * @throws IOException if the file cannot be read, is not valid CSV, or
+     *   lacks the airport_1, airport_2 or fare column
+     */
+    public static MyGraph readGraph(String csvFile) throws IOException {
+        return readGraph(Collections.singletonList(csvFile), FareAggregation.MIN);
+    }
+
+    /**
+     * Reads several DOT airfare reports, such as one per quarter, into one
+     * graph, parsing them in parallel. The records of each directed pair
+     * are combined into one edge by policy.
+     * @param csvFiles paths of the CSV reports, oldest first
+     * @param policy how records of the same pair are combined
+     * @return the graph of all the reports
+     * @throws IOException if a file cannot be read, is not valid CSV, has
+     *   a malformed number, or lacks the tbl, airport_1, airport_2 or fare
+     *   column
+     */
+    public static MyGraph readGraph(List<String> csvFiles, FareAggregation policy) throws IOException {
+        List<java.nio.file.Path> files = new ArrayList<>(csvFiles.size());
+        for (String csvFile : csvFiles) {
+            files.add(Paths.get(csvFile));
+        }
+        return new CSVIngest(policy).read(files);
+    }
+
+    /**
+     * Reads several DOT airfare reports into one graph that keeps a
+     * separate fare for each year and quarter, parsing them in parallel.
+     * @param csvFiles paths of the CSV reports, in any order
+     * @return the graph of all the reports, with its periods in time order
+     * @throws IOException if a file cannot be read, is not valid CSV, has
+     *   a malformed number, or lacks the tbl, airport_1, airport_2 or fare
+     *   column
+     */
+    public static PeriodGraph readPeriodGraph(List<String> csvFiles) throws IOException {
+        List<java.nio.file.Path> files = new ArrayList<>(csvFiles.size());
+        for (String csvFile : csvFiles) {
+            files.add(Paths.get(csvFile));
+        }
+        return new CSVIngest(FareAggregation.MIN).readPeriods(files);
+    }
+}
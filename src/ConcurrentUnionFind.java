@@ -0,0 +1,70 @@
+// A ConcurrentUnionFind class is a UnionFind that many threads may use at
+// once without locks. Parent links live in an AtomicIntegerArray; find
+// halves paths with compare-and-set, which may fail harmlessly when
+// another thread moved the link first, and union links the root with the
+// larger id under the other with one compare-and-set, retrying if either
+// root gained a parent in the meantime. Linking by id rather than by rank
+// keeps every path strictly decreasing, so no cycle can form.
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free disjoint-set forest over the ids 0 .. n-1.
+ */
+public class ConcurrentUnionFind {
+
+    private final AtomicIntegerArray parent;
+
+    /**
+     * Creates n singleton sets
+     * @param n the number of ids
+     */
+    public ConcurrentUnionFind(int n) {
+        parent = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++) {
+            parent.set(i, i);
+        }
+    }
+
+    /**
+     * Returns the representative of the set containing x. While other
+     * threads merge sets, the result may stop being a root at once.
+     * @param x an id
+     * @return the root of x's set
+     */
+    public int find(int x) {
+        int p = parent.get(x);
+        while (p != x) {
+            int gp = parent.get(p);
+            parent.compareAndSet(x, p, gp); // path halving
+            x = gp;
+            p = parent.get(x);
+        }
+        return x;
+    }
+
+    /**
+     * Merges the sets containing a and b
+     * @param a an id
+     * @param b another id
+     * @return false if a and b were already in the same set; among threads
+     *   merging the same two sets, exactly one gets true
+     */
+    public boolean union(int a, int b) {
+        while (true) {
+            int ra = find(a);
+            int rb = find(b);
+            if (ra == rb) {
+                return false;
+            }
+            if (ra < rb) {
+                int t = ra;
+                ra = rb;
+                rb = t;
+            }
+            if (parent.compareAndSet(ra, ra, rb)) {
+                return true;
+            }
+        }
+    }
+}
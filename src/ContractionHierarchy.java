@@ -0,0 +1,248 @@
+// A ContractionHierarchy class holds the result of contracting a graph's
+// vertices one by one in order of importance: every vertex has a rank,
+// and the edges are split into the upward ones (to a higher rank) kept
+// for the forward search and the downward ones kept, reversed, for the
+// backward search. Shortcut edges stand for a two-edge path through a
+// lower-ranked middle vertex; unpack expands them back into edges of the
+// original graph. A hierarchy is immutable once built or loaded, and it
+// can be saved next to a graph snapshot (same style of file layout) so a
+// server does not have to contract the graph again.
+//
+// File layout (big-endian):
+//   magic, version, vertex count n, upward edge count, downward edge
+//   count (ints), fingerprint of the contracted graph (long),
+//   rank[n], then offsets[n+1], targets, weights, middles of the upward
+//   edges, then the same four arrays for the reversed downward edges
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Contraction hierarchy of a CSRGraph, for bidirectional upward search.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class ContractionHierarchy {
+
+    private static final int MAGIC = 0x41474348; // "AGCH"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 28;
+
+    final int[] rank;        // contraction order of each vertex
+    final CSRGraph up;       // row v: edges v -> w with rank[w] > rank[v]
+    final int[] upMiddle;    // middle vertex of each upward shortcut, -1 for an original edge
+    final CSRGraph down;     // row v: edges w -> v with rank[w] > rank[v], stored as v -> w
+    final int[] downMiddle;  // middle vertex of each downward shortcut, -1 for an original edge
+    private final long fingerprint;
+
+    /**
+     * Contracts graph, in parallel on the common fork-join pool
+     * @param graph the graph to contract
+     */
+    public ContractionHierarchy(CSRGraph graph) {
+        HierarchyBuilder builder = new HierarchyBuilder(graph);
+        builder.contract();
+        rank = builder.rank();
+        int[][] upward = builder.edges(true);
+        int[][] downward = builder.edges(false);
+        up = sortedRows(rank.length, upward);
+        upMiddle = middles(up, upward);
+        down = sortedRows(rank.length, downward);
+        downMiddle = middles(down, downward);
+        fingerprint = graph.fingerprint();
+    }
+
+    private ContractionHierarchy(int[] rank, CSRGraph up, int[] upMiddle, CSRGraph down, int[] downMiddle,
+                                 long fingerprint) {
+        this.rank = rank;
+        this.up = up;
+        this.upMiddle = upMiddle;
+        this.down = down;
+        this.downMiddle = downMiddle;
+        this.fingerprint = fingerprint;
+    }
+
+    // Builds CSR rows sorted by head from {from, to, weight, middle} edge
+    // arrays; the weights of the result are first the edge numbers, which
+    // middles then replaces by the real weights
+    private static CSRGraph sortedRows(int n, int[][] edges) {
+        int m = edges[0].length;
+        int[] number = new int[m];
+        for (int i = 0; i < m; i++) {
+            number[i] = i;
+        }
+        return CSRGraph.fromEdges(n, edges[0], edges[1], number, m);
+    }
+
+    // Puts the weights of sorted in place of its edge numbers and returns
+    // the middles in the same order
+    private static int[] middles(CSRGraph sorted, int[][] edges) {
+        int[] middle = new int[sorted.edgeCount()];
+        for (int i = 0; i < middle.length; i++) {
+            int e = sorted.weights[i];
+            sorted.weights[i] = edges[2][e];
+            middle[i] = edges[3][e];
+        }
+        return middle;
+    }
+
+    /**
+     * Return whether this hierarchy was built from a graph with the same
+     * vertices, edges and costs as graph
+     * @param graph a graph
+     * @return true if the hierarchy answers queries on graph correctly
+     */
+    public boolean matches(CSRGraph graph) {
+        return graph.vertexCount() == rank.length && graph.fingerprint() == fingerprint;
+    }
+
+    /**
+     * Return the number of vertices
+     * @return the number of vertices
+     */
+    public int vertexCount() {
+        return rank.length;
+    }
+
+    /**
+     * Return the number of shortcut edges added by contraction
+     * @return the number of upward and downward shortcuts
+     */
+    public int shortcutCount() {
+        int count = 0;
+        for (int m : upMiddle) {
+            count += m >= 0 ? 1 : 0;
+        }
+        for (int m : downMiddle) {
+            count += m >= 0 ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Expands the hierarchy edge a -> b into the edges of the original
+     * graph it stands for, passing every vertex after a on that path, in
+     * order, to out; b is passed last.
+     * Pre: a -> b is an edge of this hierarchy with the given middle
+     * @param a the tail of the edge
+     * @param b the head of the edge
+     * @param middle the middle vertex of the edge, -1 if it is original
+     * @param out receives the vertices
+     */
+    public void unpack(int a, int b, int middle, IntConsumer out) {
+        int[] stack = new int[48]; // pending (tail, head, middle) triples, last on top
+        int top = 0;
+        stack[top++] = a;
+        stack[top++] = b;
+        stack[top++] = middle;
+        while (top > 0) {
+            int m = stack[--top];
+            int y = stack[--top];
+            int x = stack[--top];
+            if (m < 0) {
+                out.accept(y);
+                continue;
+            }
+            if (top + 6 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            // x -> m goes down to m, m -> y goes up from m; expand x -> m first
+            stack[top++] = m;
+            stack[top++] = y;
+            stack[top++] = upMiddle[up.edgeIndex(m, y)];
+            stack[top++] = x;
+            stack[top++] = m;
+            stack[top++] = downMiddle[down.edgeIndex(m, x)];
+        }
+    }
+
+    /**
+     * Writes this hierarchy to file, replacing it atomically if it exists
+     * @param file where to save it
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        int n = rank.length;
+        long size = HEADER_BYTES + 4L * (n + 2 * (n + 1) + 3L * up.edgeCount() + 3L * down.edgeCount());
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("hierarchy too large to save");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(up.edgeCount()).putInt(down.edgeCount());
+        out.putLong(fingerprint);
+        IntBuffer ints = out.asIntBuffer();
+        ints.put(rank);
+        ints.put(up.offsets).put(up.targets).put(up.weights).put(upMiddle);
+        ints.put(down.offsets).put(down.targets).put(down.weights).put(downMiddle);
+        out.position(out.position() + 4 * ints.position());
+        out.flip();
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a hierarchy saved by write
+     * @param file the hierarchy file
+     * @return the hierarchy it contains
+     * @throws IOException if the file cannot be read or is not a hierarchy
+     *   of this version
+     */
+    public static ContractionHierarchy read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException(file + ": not a contraction hierarchy");
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (map.getInt() != MAGIC) {
+                throw new IOException(file + ": not a contraction hierarchy");
+            }
+            int version = map.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + ": unsupported hierarchy version " + version);
+            }
+            int n = map.getInt();
+            int mUp = map.getInt();
+            int mDown = map.getInt();
+            long fingerprint = map.getLong();
+            if (n < 0 || mUp < 0 || mDown < 0
+                    || HEADER_BYTES + 4L * (n + 2 * (n + 1L) + 3L * mUp + 3L * mDown) > size) {
+                throw new IOException(file + ": truncated hierarchy");
+            }
+
+            IntBuffer ints = map.asIntBuffer();
+            int[] rank = new int[n];
+            ints.get(rank);
+            int[][] upArrays = {new int[n + 1], new int[mUp], new int[mUp], new int[mUp]};
+            int[][] downArrays = {new int[n + 1], new int[mDown], new int[mDown], new int[mDown]};
+            for (int[] array : upArrays) {
+                ints.get(array);
+            }
+            for (int[] array : downArrays) {
+                ints.get(array);
+            }
+            try {
+                CSRGraph up = new CSRGraph(upArrays[0], upArrays[1], upArrays[2]);
+                CSRGraph down = new CSRGraph(downArrays[0], downArrays[1], downArrays[2]);
+                return new ContractionHierarchy(rank, up, upArrays[3], down, downArrays[3], fingerprint);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + ": corrupt hierarchy", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+// A CostMatrix class fills a flat origins x targets cost matrix with one
+// Dijkstra search per distinct origin, instead of one search per cell.
+// Each search stops as soon as every requested target is settled. The
+// origins are spread over the common fork-join pool, and each worker
+// borrows a search from a shared pool, so the scratch arrays are reused
+// across origins and calls. Rows are written by one worker each, so the
+// matrix needs no locking.
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * One-to-many and many-to-many cheapest costs over a CSRGraph.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class CostMatrix {
+
+    /**
+     * Computes the cheapest cost from every origin to every target.
+     * Pre: every origin and target is a vertex id of the searched graph,
+     *   and pred is null or has origins.length * n entries
+     * @param searches a pool of searches over the graph
+     * @param n the number of vertices of the graph
+     * @param origins the origin of each row; repeats are searched once
+     * @param targets the target of each column; repeats are allowed
+     * @param cost receives cost[i * targets.length + j], the cheapest cost
+     *   from origins[i] to targets[j], or DijkstraSearch.INFINITY if it is
+     *   not reachable
+     * @param pred if not null, receives pred[i * n + v], the vertex before
+     *   v on the cheapest path from origins[i], for v equal to every
+     *   reachable target and every vertex on its path; -1 for the origin
+     *   and vertices not reached
+     */
+    public static void compute(ScratchPool<DijkstraSearch> searches, int n, int[] origins, int[] targets,
+                               int[] cost, int[] pred) {
+        boolean[] wanted = new boolean[n];
+        int count = 0;
+        for (int t : targets) {
+            if (!wanted[t]) {
+                wanted[t] = true;
+                count++;
+            }
+        }
+
+        // Only the first row of each distinct origin is searched
+        int[] firstRow = new int[n];
+        Arrays.fill(firstRow, -1);
+        int[] distinct = new int[origins.length];
+        int searched = 0;
+        for (int i = 0; i < origins.length; i++) {
+            if (firstRow[origins[i]] < 0) {
+                firstRow[origins[i]] = i;
+                distinct[searched++] = i;
+            }
+        }
+        if (count == 0) { // no columns, so only pred has anything to fill
+            if (pred != null) {
+                Arrays.fill(pred, 0, origins.length * n, -1);
+            }
+            return;
+        }
+        int targetCount = count;
+        IntStream rows = Arrays.stream(distinct, 0, searched);
+        if (searched > 1) {
+            rows = rows.parallel();
+        }
+        rows.forEach(i -> fillRow(searches, n, origins[i], i, wanted, targetCount, targets, cost, pred));
+
+        int cols = targets.length;
+        for (int i = 0; i < origins.length; i++) {
+            int first = firstRow[origins[i]];
+            if (first != i) {
+                System.arraycopy(cost, first * cols, cost, i * cols, cols);
+                if (pred != null) {
+                    System.arraycopy(pred, first * n, pred, i * n, n);
+                }
+            }
+        }
+    }
+
+    // Searches from origin until the targets are settled and writes row i
+    private static void fillRow(ScratchPool<DijkstraSearch> searches, int n, int origin, int i,
+                                boolean[] wanted, int count, int[] targets, int[] cost, int[] pred) {
+        DijkstraSearch search = searches.borrow();
+        try {
+            search.run(origin, wanted, count);
+            int row = i * targets.length;
+            for (int j = 0; j < targets.length; j++) {
+                cost[row + j] = search.dist(targets[j]);
+            }
+            if (pred != null) {
+                for (int v = 0; v < n; v++) {
+                    pred[i * n + v] = search.pred(v);
+                }
+            }
+        } finally {
+            searches.release(search);
+        }
+    }
+}
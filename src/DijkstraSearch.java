@@ -0,0 +1,173 @@
+// A DijkstraSearch class runs Dijkstra's algorithm over the CSR edges of a
+// graph, on the heap (CSRGraph) or off it (OffHeapGraph), using
+// int-indexed cost and predecessor arrays and an IndexedMinHeap. One
+// instance keeps its scratch arrays between runs and resets them in time
+// proportional to the vertices the previous run touched, so repeated
+// queries allocate nothing. An instance is not thread-safe.
+
+/**
+ * Reusable single-source shortest-path search over CSR edges.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class DijkstraSearch {
+
+    /** Cost reported for vertices that were not reached. */
+    public static final int INFINITY = Integer.MAX_VALUE;
+
+    private final EdgeArrays graph;
+    private final int[] dist;  // tentative or final cost of each vertex
+    private final int[] pred;  // predecessor of each vertex, -1 for none
+    private final int[] stamp; // run in which dist/pred were last written
+    private final IndexedMinHeap heap;
+    private int epoch;
+    private int source = -1;
+    private int settled;
+    private int relaxed;
+
+    /**
+     * Creates a search with scratch space for every vertex of graph
+     * @param graph the graph to search
+     */
+    public DijkstraSearch(EdgeArrays graph) {
+        this.graph = graph;
+        int n = graph.vertexCount();
+        dist = new int[n];
+        pred = new int[n];
+        stamp = new int[n];
+        heap = new IndexedMinHeap(n);
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from source. If target is a vertex id the
+     * search stops as soon as target is settled; pass -1 to settle every
+     * reachable vertex.
+     * @param source the starting vertex id
+     * @param target the destination vertex id, or -1 for all
+     * @return the cost from source to target, or INFINITY if target is not
+     *   reachable (or target is -1)
+     */
+    public int run(int source, int target) {
+        return search(source, target, null, 0);
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from source until every wanted vertex is
+     * settled, or every reachable one if some are not reachable. The cost
+     * of each wanted vertex is then final in dist.
+     * @param source the starting vertex id
+     * @param wanted marks the vertices to settle, indexed by vertex id
+     * @param count the number of marked vertices
+     */
+    public void run(int source, boolean[] wanted, int count) {
+        search(source, -1, wanted, count);
+    }
+
+    // Searches from source until target is settled, or until count wanted
+    // vertices are, or until the heap runs out
+    private int search(int source, int target, boolean[] wanted, int count) {
+        if (++epoch == 0) { // stamps wrapped around, start over
+            java.util.Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        heap.clear();
+        this.source = source;
+        settled = 0;
+        relaxed = 0;
+
+        EdgeArrays graph = this.graph;
+        touch(source, 0, -1);
+        heap.offer(source, 0);
+        while (!heap.isEmpty()) {
+            int d = heap.peekKey();
+            int u = heap.poll();
+            settled++;
+            if (u == target) {
+                return d;
+            }
+            if (wanted != null && wanted[u] && --count == 0) {
+                return INFINITY;
+            }
+            int start = graph.rowStart(u);
+            int end = graph.rowStart(u + 1);
+            relaxed += end - start;
+            for (int i = start; i < end; i++) {
+                int v = graph.target(i);
+                int nd = d + graph.weight(i);
+                if (stamp[v] != epoch) {
+                    touch(v, nd, u);
+                    heap.offer(v, nd);
+                } else if (nd < dist[v]) {
+                    dist[v] = nd;
+                    pred[v] = u;
+                    heap.offer(v, nd);
+                }
+            }
+        }
+        return target < 0 ? INFINITY : dist(target);
+    }
+
+    private void touch(int v, int d, int p) {
+        stamp[v] = epoch;
+        dist[v] = d;
+        pred[v] = p;
+    }
+
+    /**
+     * Return the cost of v found by the last run. It is final for every
+     * settled vertex and an upper bound for the rest.
+     * @param v a vertex id
+     * @return the cost from the source to v, or INFINITY if v was not reached
+     */
+    public int dist(int v) {
+        return stamp[v] == epoch ? dist[v] : INFINITY;
+    }
+
+    /**
+     * Return the predecessor of v on the path found by the last run
+     * @param v a vertex id
+     * @return the vertex before v, or -1 if v is the source or not reached
+     */
+    public int pred(int v) {
+        return stamp[v] == epoch ? pred[v] : -1;
+    }
+
+    /**
+     * Return the source of the last run
+     * @return the source vertex id, or -1 before the first run
+     */
+    public int source() {
+        return source;
+    }
+
+    /**
+     * Return the number of vertices settled by the last run
+     * @return the number of vertices removed from the heap
+     */
+    public int settledCount() {
+        return settled;
+    }
+
+    /**
+     * Return the graph this search runs over
+     * @return the graph
+     */
+    public EdgeArrays graph() {
+        return graph;
+    }
+
+    /**
+     * Return the number of edges relaxed by the last run
+     * @return the number of out-edges scanned from settled vertices
+     */
+    public int relaxedCount() {
+        return relaxed;
+    }
+
+    /**
+     * Return the number of heap operations of the last run
+     * @return the inserts, decrease-keys and polls of the last run
+     */
+    public int heapOperationCount() {
+        return heap.operationCount();
+    }
+}
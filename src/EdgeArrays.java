@@ -0,0 +1,65 @@
+// An EdgeArrays interface is the read access the search and spanning
+// tree engines need from a graph stored in compressed sparse row form,
+// whether the rows live in int arrays on the heap (CSRGraph) or in
+// buffers off it (OffHeapGraph). Engines written against it work on
+// both without copying the edges.
+
+/**
+ * Edges of a directed graph in CSR order: the out-edges of vertex v have
+ * the indices [rowStart(v), rowStart(v + 1)), sorted by target.
+ */
+public interface EdgeArrays {
+
+    /**
+     * Return the number of vertices
+     * @return the number of vertices
+     */
+    int vertexCount();
+
+    /**
+     * Return the number of directed edges
+     * @return the number of edges
+     */
+    int edgeCount();
+
+    /**
+     * Return where the out-edges of vertex v start; they end where those
+     * of v + 1 start
+     * @param v a vertex id, or the vertex count for the end of the last row
+     * @return the index of the first out-edge of v
+     */
+    int rowStart(int v);
+
+    /**
+     * Return the destination of an edge
+     * @param e an edge index
+     * @return the vertex id the edge leads to
+     */
+    int target(int e);
+
+    /**
+     * Return the cost of an edge
+     * @param e an edge index
+     * @return the cost of the edge
+     */
+    int weight(int e);
+
+    /**
+     * Return the source of an edge, by binary search over the row starts
+     * @param e an edge index
+     * @return the vertex id whose row holds the edge
+     */
+    default int source(int e) {
+        int lo = 0;
+        int hi = vertexCount() - 1;
+        while (lo < hi) { // the last row starting at or before e
+            int mid = (lo + hi + 1) >>> 1;
+            if (rowStart(mid) <= e) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,12 @@
+/**
+ * How CSVIngest combines the records that report a fare for the same
+ * directed airport pair.
+ */
+public enum FareAggregation {
+    /** The lowest fare reported. */
+    MIN,
+    /** The fare of the latest year and quarter; among equals, the record read last. */
+    LATEST,
+    /** The mean fare weighted by passengers, or the plain mean if none are reported. */
+    PASSENGER_WEIGHTED_MEAN
+}
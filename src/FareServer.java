@@ -0,0 +1,299 @@
+// A FareServer class answers cheapest-fare queries over HTTP using the
+// JDK's built-in HttpServer. All requests share one MyGraph, whose
+// searches borrow scratch arrays from a pool, or the graph a
+// GraphReloader has published when the request arrived; every request runs on
+// its own thread: a virtual thread when the JVM supports them (Java 21+),
+// otherwise a thread from a cached pool.
+//
+// Endpoints:
+//   GET  /path?from=ATL&to=LAX[&strategy=DIJKSTRA|BIDIRECTIONAL|LANDMARK|CONTRACTION_HIERARCHY]
+//                             [&maxStops=N]
+//   POST /batch   body: one "FROM TO" pair per line
+//   GET  /stats   request, pair, latency and path cache counters
+// Default (Dijkstra) queries go through the graph's path tree cache.
+// Results are JSON. An unknown airport is reported in the result, it
+// does not stop the server.
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * HTTP server for concurrent fare lookups over one shared graph.
+ */
+public class FareServer {
+
+    private final Supplier<MyGraph> graphs; // the graph each request uses
+    private final GraphReloader reloader; // null for a fixed graph
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder pairs = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * Creates a server for graph listening on the given local port.
+     * It does not accept requests until start is called.
+     * @param graph the graph to answer queries from
+     * @param port the TCP port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public FareServer(MyGraph graph, int port) throws IOException {
+        this(() -> graph, null, port);
+    }
+
+    /**
+     * Creates a server that answers each request from the graph reloader
+     * has published when the request arrives, listening on the given
+     * local port. It does not accept requests until start is called.
+     * @param reloader publishes the graph to answer queries from
+     * @param port the TCP port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public FareServer(GraphReloader reloader, int port) throws IOException {
+        this(reloader::graph, reloader, port);
+    }
+
+    private FareServer(Supplier<MyGraph> graphs, GraphReloader reloader, int port) throws IOException {
+        this.graphs = graphs;
+        this.reloader = reloader;
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/path", exchange -> handle(exchange, this::path));
+        server.createContext("/batch", exchange -> handle(exchange, this::batch));
+        server.createContext("/stats", exchange -> handle(exchange, e -> stats()));
+    }
+
+    // Returns a virtual-thread-per-task executor when the running JVM has
+    // one, and a cached thread pool otherwise
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Starts accepting requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting up to the given delay for open exchanges
+     * @param delaySeconds the longest time to wait
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * Return the port the server listens on
+     * @return the local port
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private interface Handler {
+        String respond(HttpExchange exchange) throws IOException;
+    }
+
+    // Runs a handler, sends its JSON answer and records the request
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        long start = System.nanoTime();
+        int status = 200;
+        String body;
+        try {
+            body = handler.respond(exchange);
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            String message = e.getMessage() == null ? "bad request" : e.getMessage(); // graph code throws bare ones
+            body = "{\"error\":" + quote(message) + "}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        long elapsed = System.nanoTime() - start;
+        requests.increment();
+        if (status != 200) {
+            errors.increment();
+        }
+        latencyNanos.add(elapsed);
+        maxLatencyNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    private String path(HttpExchange exchange) {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String from = query.get("from");
+        String to = query.get("to");
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("from and to are required");
+        }
+        SearchStrategy strategy = SearchStrategy.DIJKSTRA;
+        if (query.containsKey("strategy")) {
+            strategy = strategy(query.get("strategy"));
+        }
+        int maxStops = -1;
+        if (query.containsKey("maxStops")) {
+            maxStops = maxStops(query.get("maxStops"));
+        }
+        StringBuilder sb = new StringBuilder();
+        answer(graphs.get(), from, to, strategy, maxStops, sb);
+        return sb.toString();
+    }
+
+    // Returns the strategy named by the parameter, ignoring case
+    private static SearchStrategy strategy(String name) {
+        StringBuilder accepted = new StringBuilder();
+        for (SearchStrategy s : SearchStrategy.values()) {
+            if (s.name().equalsIgnoreCase(name)) {
+                return s;
+            }
+            accepted.append(accepted.length() == 0 ? "" : ", ").append(s.name());
+        }
+        throw new IllegalArgumentException("strategy must be one of " + accepted);
+    }
+
+    // Returns the connection limit given by the parameter; nine digits at
+    // most, so it always fits an int
+    private static int maxStops(String value) {
+        if (!value.matches("[0-9]{1,9}")) {
+            throw new IllegalArgumentException("maxStops must be a whole number from 0 to 999999999");
+        }
+        return Integer.parseInt(value);
+    }
+
+    private String batch(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            throw new IllegalArgumentException("batch requires POST");
+        }
+        MyGraph graph = graphs.get(); // one graph for the whole batch
+        StringBuilder sb = new StringBuilder("[");
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                String[] pair = line.trim().split("[\\s,]+");
+                if (pair.length != 2) {
+                    continue; // blank or malformed line
+                }
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                answer(graph, pair[0], pair[1], SearchStrategy.DIJKSTRA, -1, sb);
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    // Appends the JSON answer for one origin and destination to sb; a
+    // nonnegative maxStops limits the connections and ignores strategy
+    private void answer(MyGraph graph, String from, String to, SearchStrategy strategy, int maxStops,
+                        StringBuilder sb) {
+        pairs.increment();
+        sb.append("{\"from\":").append(quote(from)).append(",\"to\":").append(quote(to));
+        Vertex a = graph.vertex(from);
+        Vertex b = graph.vertex(to);
+        if (a == null || b == null) {
+            sb.append(",\"error\":\"no such airport\"}");
+            return;
+        }
+        Path result = maxStops >= 0 ? graph.shortestPath(a, b, maxStops)
+                : strategy == SearchStrategy.DIJKSTRA ? graph.cachedPath(a, b) : graph.shortestPath(a, b, strategy);
+        if (result == null) {
+            sb.append(",\"path\":null}");
+            return;
+        }
+        sb.append(",\"cost\":").append(result.cost).append(",\"path\":[");
+        for (int i = 0; i < result.vertices.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(quote(result.vertices.get(i).getLabel()));
+        }
+        sb.append("]}");
+    }
+
+    private String stats() {
+        long count = requests.sum();
+        PathTreeCache cache = graphs.get().pathCache();
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return "{\"requests\":" + count
+                + ",\"pairs\":" + pairs.sum()
+                + ",\"errors\":" + errors.sum()
+                + ",\"uptimeSeconds\":" + String.format("%.1f", seconds)
+                + ",\"requestsPerSecond\":" + String.format("%.1f", count / Math.max(seconds, 1e-9))
+                + ",\"meanLatencyMicros\":" + (count == 0 ? 0 : latencyNanos.sum() / count / 1000)
+                + ",\"maxLatencyMicros\":" + maxLatencyNanos.get() / 1000
+                + ",\"cache\":{\"trees\":" + cache.size()
+                + ",\"bytes\":" + cache.sizeInBytes()
+                + ",\"hits\":" + cache.hitCount()
+                + ",\"misses\":" + cache.missCount()
+                + ",\"evictions\":" + cache.evictionCount()
+                + ",\"expirations\":" + cache.expirationCount()
+                + ",\"repairs\":" + cache.repairCount() + "}"
+                + (reloader == null ? "" : ",\"reload\":{\"generation\":" + reloader.getGeneration()
+                        + ",\"lastReloadMillis\":" + reloader.getLastReloadMillis()
+                        + ",\"failedReloads\":" + reloader.getFailedReloads() + "}")
+                + "}";
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String part : rawQuery.split("&")) {
+            int eq = part.indexOf('=');
+            if (eq > 0) {
+                query.put(URLDecoder.decode(part.substring(0, eq), StandardCharsets.UTF_8),
+                          URLDecoder.decode(part.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,245 @@
+// A GraphMetrics class collects what the queries on one MyGraph cost:
+// a latency histogram per operation, and the vertices settled, edges
+// relaxed and heap operations of shortest-path searches. It also keeps
+// how long each phase of building the graph took. Query measurement is
+// off by default; while it is off, a query only reads one volatile flag,
+// and the histograms are not even allocated until it is first turned
+// on. It can be turned on in code or over JMX once registered.
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Query and build instrumentation of a graph, exposed as an MXBean.
+ */
+public class GraphMetrics implements GraphMetricsMXBean {
+
+    /**
+     * The measured graph operations.
+     */
+    public enum Operation {
+        /** MyGraph.shortestPath with any strategy. */
+        SHORTEST_PATH,
+        /** MyGraph.adjacentVertices. */
+        ADJACENT_VERTICES,
+        /** MyGraph.edgeCost. */
+        EDGE_COST,
+        /** MyGraph.getMinimumSpanningTreeEdges. */
+        MINIMUM_SPANNING_TREE
+    }
+
+    /**
+     * The timed phases of building a graph from a report.
+     */
+    public enum Phase {
+        /** Splitting and tokenizing the reports, with per-chunk airport tables. */
+        CSV_PARSE,
+        /** Merging the chunk airport tables into one numbering. */
+        VERTEX_INTERNING,
+        /** Combining repeated routes and building the CSR arrays and graph. */
+        ADJACENCY_BUILD,
+        /** Renumbering the vertices for locality, see MyGraph.reordered. */
+        VERTEX_REORDERING
+    }
+
+    private volatile boolean enabled;
+    private volatile Recorder recorder; // null until first enabled
+    private final AtomicLongArray buildNanos = new AtomicLongArray(Phase.values().length);
+
+    // The query measurements, allocated once when first enabled
+    static final class Recorder {
+        private final LatencyHistogram[] latency = new LatencyHistogram[Operation.values().length];
+        private final LongAdder settled = new LongAdder();
+        private final LongAdder relaxed = new LongAdder();
+        private final LongAdder heapOperations = new LongAdder();
+
+        Recorder() {
+            for (int i = 0; i < latency.length; i++) {
+                latency[i] = new LatencyHistogram();
+            }
+        }
+
+        /**
+         * Records one call of an operation
+         * @param op the operation
+         * @param nanos how long it took
+         */
+        void record(Operation op, long nanos) {
+            latency[op.ordinal()].record(nanos);
+        }
+
+        /**
+         * Records one shortest-path query and the work its search did
+         * @param nanos how long it took
+         * @param settledVertices vertices removed from the heap
+         * @param relaxedEdges out-edges scanned
+         * @param heapOps inserts, decrease-keys and polls
+         */
+        void search(long nanos, int settledVertices, int relaxedEdges, int heapOps) {
+            latency[Operation.SHORTEST_PATH.ordinal()].record(nanos);
+            settled.add(settledVertices);
+            relaxed.add(relaxedEdges);
+            heapOperations.add(heapOps);
+        }
+    }
+
+    /**
+     * Return where queries should record, if they are being measured
+     * @return the recorder, or null while measuring is off
+     */
+    Recorder active() {
+        return enabled ? recorder : null;
+    }
+
+    /**
+     * Records how long a phase of building the graph took
+     * @param phase the phase
+     * @param nanos its duration in nanoseconds
+     */
+    public void recordBuild(Phase phase, long nanos) {
+        buildNanos.set(phase.ordinal(), nanos);
+    }
+
+    /**
+     * Registers this bean with the platform MBean server under
+     * airfares:type=GraphMetrics,name=name
+     * @param name distinguishes the graphs of one process
+     * @throws JMException if the name is taken or cannot be registered
+     */
+    public void register(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                new ObjectName("airfares:type=GraphMetrics,name=" + ObjectName.quote(name)));
+    }
+
+    /**
+     * Removes the bean registered under name by register, if any
+     * @param name the name it was registered under
+     * @throws JMException if the name cannot be unregistered
+     */
+    public void unregister(String name) throws JMException {
+        ObjectName objectName = new ObjectName("airfares:type=GraphMetrics,name=" + ObjectName.quote(name));
+        if (ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void setEnabled(boolean enabled) {
+        if (enabled && recorder == null) {
+            recorder = new Recorder();
+        }
+        this.enabled = enabled;
+    }
+
+    public Map<String, Long> getCounts() {
+        return perOperation(LatencyHistogram::count);
+    }
+
+    public Map<String, Double> getMeanNanos() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        Recorder r = recorder;
+        for (Operation op : Operation.values()) {
+            result.put(op.name(), r == null ? 0 : r.latency[op.ordinal()].mean());
+        }
+        return result;
+    }
+
+    public Map<String, Long> getP50Nanos() {
+        return perOperation(h -> h.percentile(50));
+    }
+
+    public Map<String, Long> getP99Nanos() {
+        return perOperation(h -> h.percentile(99));
+    }
+
+    public Map<String, Long> getMaxNanos() {
+        return perOperation(LatencyHistogram::max);
+    }
+
+    // Returns one statistic of every operation's histogram
+    private Map<String, Long> perOperation(ToLongFunction<LatencyHistogram> statistic) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        Recorder r = recorder;
+        for (Operation op : Operation.values()) {
+            result.put(op.name(), r == null ? 0 : statistic.applyAsLong(r.latency[op.ordinal()]));
+        }
+        return result;
+    }
+
+    public long getSettledVertices() {
+        Recorder r = recorder;
+        return r == null ? 0 : r.settled.sum();
+    }
+
+    public long getRelaxedEdges() {
+        Recorder r = recorder;
+        return r == null ? 0 : r.relaxed.sum();
+    }
+
+    public long getHeapOperations() {
+        Recorder r = recorder;
+        return r == null ? 0 : r.heapOperations.sum();
+    }
+
+    public Map<String, Long> getBuildPhaseNanos() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            long nanos = buildNanos.get(phase.ordinal());
+            if (nanos > 0) {
+                result.put(phase.name(), nanos);
+            }
+        }
+        return result;
+    }
+
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("metrics ").append(enabled ? "enabled" : "disabled").append('\n');
+        sb.append(String.format("%-22s %10s %10s %10s %10s %10s%n",
+                "operation (us)", "count", "mean", "p50", "p99", "max"));
+        Recorder r = recorder;
+        long queries = 0;
+        for (Operation op : Operation.values()) {
+            LatencyHistogram h = r == null ? null : r.latency[op.ordinal()];
+            long count = h == null ? 0 : h.count();
+            if (op == Operation.SHORTEST_PATH) {
+                queries = count;
+            }
+            sb.append(String.format("%-22s %10d %10.1f %10.1f %10.1f %10.1f%n", op.name(), count,
+                    h == null ? 0 : h.mean() / 1e3, h == null ? 0 : h.percentile(50) / 1e3,
+                    h == null ? 0 : h.percentile(99) / 1e3, h == null ? 0 : h.max() / 1e3));
+        }
+        long[] work = {getSettledVertices(), getRelaxedEdges(), getHeapOperations()};
+        String[] names = {"settled vertices", "relaxed edges", "heap operations"};
+        for (int i = 0; i < work.length; i++) {
+            sb.append(String.format("%-22s %10d (%.1f per query)%n", names[i], work[i],
+                    queries == 0 ? 0 : (double) work[i] / queries));
+        }
+        Map<String, Long> build = getBuildPhaseNanos();
+        for (Map.Entry<String, Long> phase : build.entrySet()) {
+            sb.append(String.format("build %-16s %10.1f ms%n", phase.getKey(), phase.getValue() / 1e6));
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        Recorder r = recorder;
+        if (r != null) {
+            for (LatencyHistogram h : r.latency) {
+                h.reset();
+            }
+            r.settled.reset();
+            r.relaxed.reset();
+            r.heapOperations.reset();
+        }
+    }
+}
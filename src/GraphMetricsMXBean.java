@@ -0,0 +1,85 @@
+import java.util.Map;
+
+/**
+ * Management interface of GraphMetrics, as seen by JMX clients such as
+ * jconsole. Maps are keyed by operation or build phase name.
+ */
+public interface GraphMetricsMXBean {
+
+    /**
+     * Return whether queries are being measured
+     * @return true if enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Starts or stops measuring queries; what was measured is kept
+     * @param enabled whether to measure
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Return the number of measured calls of each operation
+     * @return operation name to count
+     */
+    Map<String, Long> getCounts();
+
+    /**
+     * Return the mean latency of each operation
+     * @return operation name to mean nanoseconds
+     */
+    Map<String, Double> getMeanNanos();
+
+    /**
+     * Return the median latency of each operation
+     * @return operation name to nanoseconds
+     */
+    Map<String, Long> getP50Nanos();
+
+    /**
+     * Return the 99th percentile latency of each operation
+     * @return operation name to nanoseconds
+     */
+    Map<String, Long> getP99Nanos();
+
+    /**
+     * Return the largest latency of each operation
+     * @return operation name to nanoseconds
+     */
+    Map<String, Long> getMaxNanos();
+
+    /**
+     * Return the vertices settled by measured shortest-path queries
+     * @return the total number
+     */
+    long getSettledVertices();
+
+    /**
+     * Return the edges relaxed by measured shortest-path queries
+     * @return the total number
+     */
+    long getRelaxedEdges();
+
+    /**
+     * Return the heap operations of measured shortest-path queries
+     * @return the total number
+     */
+    long getHeapOperations();
+
+    /**
+     * Return how long each phase of building the graph took
+     * @return phase name to nanoseconds, for the phases that ran
+     */
+    Map<String, Long> getBuildPhaseNanos();
+
+    /**
+     * Returns every metric as a text table
+     * @return the table
+     */
+    String dump();
+
+    /**
+     * Forgets the query measurements; build timings are kept
+     */
+    void reset();
+}
@@ -5,12 +5,15 @@ import java.util.List;
 
 public class GraphReader {
 
+    // shared vertices, so every line naming an airport yields the same Vertex
+    private final SymbolTable airports = new SymbolTable();
+
     public Collection<Vertex> readVertex(String f1)  {
         List<Vertex> v = new ArrayList<>(); // storage for vertices
         try (BufferedReader reader = new BufferedReader(new FileReader(new File(f1)))) {
             String line;
             while (((line = reader.readLine()) != null) && !line.isEmpty()) {
-                v.add(new Vertex(line));
+                v.add(airports.vertex(airports.intern(line)));
             }
         } catch (IOException e) {
             System.err.print("Vertex IOException");
@@ -29,8 +32,8 @@ public class GraphReader {
                 String b = reader.readLine(); //destination line
                 String w = reader.readLine();
                 if ((a != null) && (b != null) && (w != null)) {
-                    Vertex from = new Vertex(a); // source
-                    Vertex to = new Vertex(b); //destination
+                    Vertex from = airports.vertex(airports.intern(a)); // source
+                    Vertex to = airports.vertex(airports.intern(b)); //destination
                     int weight = (int) Double.parseDouble(w);
                     edges.add(new Edge(from, to, weight));
                 } else {
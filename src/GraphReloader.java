@@ -0,0 +1,280 @@
+// A GraphReloader class keeps a MyGraph up to date with the report files
+// of a data directory without stopping queries. A daemon thread watches
+// the directory with a WatchService; once files matching the pattern
+// have been created or changed and then left alone for QUIET_MILLIS (so a
+// file still being copied is not read half-written), a single background
+// thread builds a new graph from scratch, checks it, and publishes it by
+// swapping an AtomicReference. Readers call graph() once per query or
+// batch and use what it returned: a query that started before the swap
+// finishes on the old graph, which is dropped once no query holds it.
+// Reading takes no lock. A reload that fails keeps the old graph. Reload
+// requests that arrive while one is waiting to run are merged into it.
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Atomically swapped graph, rebuilt in the background when its data
+ * files change.
+ */
+public class GraphReloader implements GraphReloaderMXBean, AutoCloseable {
+
+    // how long the directory must stay unchanged before a reload starts
+    private static final long QUIET_MILLIS = 2000;
+
+    /**
+     * Builds a complete graph from the current data files.
+     */
+    public interface Loader {
+        /**
+         * Builds the graph
+         * @return the new graph
+         * @throws IOException if the files cannot be read
+         */
+        MyGraph load() throws IOException;
+    }
+
+    // The published graph with the generation it was published as
+    private static final class Snapshot {
+        final MyGraph graph;
+        final long generation;
+        final long publishedAt; // milliseconds since the epoch
+
+        Snapshot(MyGraph graph, long generation) {
+            this.graph = graph;
+            this.generation = generation;
+            publishedAt = System.currentTimeMillis();
+        }
+    }
+
+    private final java.nio.file.Path directory;
+    private final PathMatcher matcher;
+    private final Loader loader;
+    private final AtomicReference<Snapshot> published;
+    private final ExecutorService rebuilds; // one daemon thread, so reloads never overlap
+    private final AtomicBoolean pending = new AtomicBoolean(); // a reload is queued, not started
+    private final LongAdder failures = new LongAdder();
+    private volatile long lastReloadNanos;
+    private volatile String lastError;
+    private volatile String metricsName; // graph metrics follow the graph under it, or null
+    private WatchService watcher; // null until started
+
+    /**
+     * Creates a reloader that publishes initial until the files change.
+     * Nothing is watched until start is called.
+     * @param initial the graph to publish first, as generation 0
+     * @param directory the directory holding the data files
+     * @param glob which file names count as data files, such as "*.csv"
+     * @param loader builds a new graph from the files
+     */
+    public GraphReloader(MyGraph initial, java.nio.file.Path directory, String glob, Loader loader) {
+        this.directory = directory;
+        matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        this.loader = loader;
+        published = new AtomicReference<>(new Snapshot(initial, 0));
+        rebuilds = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "graph-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the published graph. Callers should read it once and use
+     * that graph for the whole query.
+     * @return the newest graph that passed validation
+     */
+    public MyGraph graph() {
+        return published.get().graph;
+    }
+
+    /**
+     * Starts watching the directory for new and changed data files
+     * @throws IOException if the directory cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (watcher != null) {
+            return;
+        }
+        watcher = directory.getFileSystem().newWatchService();
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread watchThread = new Thread(this::watch, "graph-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Stops watching and rebuilding; the published graph stays readable
+     */
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                // nothing is left to release
+            }
+        }
+        rebuilds.shutdownNow();
+    }
+
+    /**
+     * Registers this reloader as airfares:type=GraphReloader,name=name, and
+     * the published graph's metrics as airfares:type=GraphMetrics,name=name.
+     * After every reload the graph metrics registration moves to the new
+     * graph, which measures queries if the old one did.
+     * @param name distinguishes the reloaders of one process
+     * @throws JMException if the name is taken or cannot be registered
+     */
+    public void register(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                new ObjectName("airfares:type=GraphReloader,name=" + ObjectName.quote(name)));
+        graph().metrics().register(name);
+        metricsName = name;
+    }
+
+    /**
+     * Rebuilds the graph on the background thread, unless a rebuild is
+     * already waiting to run, in which case that one serves this request
+     * @return completes with true if a new graph was published, false if
+     *   loading or validation failed or the request was merged
+     */
+    public Future<Boolean> reload() {
+        if (!pending.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return rebuilds.submit(() -> {
+            pending.set(false);
+            return rebuild();
+        });
+    }
+
+    @Override
+    public void requestReload() {
+        reload();
+    }
+
+    // Waits for batches of changes to matching files and reloads after each
+    private void watch() {
+        try {
+            while (true) {
+                boolean changed = drain(watcher.take());
+                WatchKey key;
+                while ((key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(key); // still changing, wait until quiet
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed, stop watching
+        }
+    }
+
+    // Consumes the events of key and tells whether any concerns a data file
+    private boolean drain(WatchKey key) {
+        boolean matched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                matched = true; // events were lost, assume the worst
+            } else if (matcher.matches((java.nio.file.Path) event.context())) {
+                matched = true;
+            }
+        }
+        key.reset();
+        return matched;
+    }
+
+    // Loads, checks and publishes a new graph; runs on the reload thread
+    private boolean rebuild() {
+        long started = System.nanoTime();
+        MyGraph graph;
+        try {
+            graph = loader.load();
+            validate(graph);
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            lastError = String.valueOf(e.getMessage());
+            return false;
+        }
+        Snapshot previous = published.get();
+        published.set(new Snapshot(graph, previous.generation + 1));
+        lastReloadNanos = System.nanoTime() - started;
+        moveMetrics(previous.graph, graph);
+        return true;
+    }
+
+    // Rejects graphs that could not answer queries
+    private static void validate(MyGraph graph) {
+        if (graph == null || graph.vertices().isEmpty() || graph.adjacency().edgeCount() == 0) {
+            throw new IllegalStateException("new graph has no airports or no routes");
+        }
+        // the first route must be found as the cheapest path or cheaper
+        CSRGraph csr = graph.adjacency();
+        int from = 0;
+        while (csr.offsets[from] == csr.offsets[from + 1]) {
+            from++;
+        }
+        Path probe = graph.shortestPath(graph.vertexAt(from), graph.vertexAt(csr.targets[csr.offsets[from]]));
+        if (probe == null || probe.cost > csr.weights[csr.offsets[from]]) {
+            throw new IllegalStateException("new graph fails a probe query");
+        }
+    }
+
+    // Moves the JMX registration of the graph metrics to the new graph
+    private void moveMetrics(MyGraph old, MyGraph graph) {
+        String name = metricsName;
+        if (name == null) {
+            return;
+        }
+        graph.metrics().setEnabled(old.metrics().isEnabled());
+        try {
+            old.metrics().unregister(name);
+            graph.metrics().register(name);
+        } catch (JMException e) {
+            lastError = "metrics not moved to the new graph: " + e.getMessage();
+        }
+    }
+
+    public long getGeneration() {
+        return published.get().generation;
+    }
+
+    public long getLastReloadMillis() {
+        return lastReloadNanos / 1000000;
+    }
+
+    public long getPublishedAtMillis() {
+        return published.get().publishedAt;
+    }
+
+    public long getFailedReloads() {
+        return failures.sum();
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public int getAirportCount() {
+        return graph().vertices().size();
+    }
+}
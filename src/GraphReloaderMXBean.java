@@ -0,0 +1,49 @@
+/**
+ * Management interface of GraphReloader, as seen by JMX clients such as
+ * jconsole.
+ */
+public interface GraphReloaderMXBean {
+
+    /**
+     * Return the generation of the published graph
+     * @return 0 for the initial graph, then 1, 2, ... per reload
+     */
+    long getGeneration();
+
+    /**
+     * Return how long the last successful reload took, from the start of
+     * loading until the new graph was published
+     * @return milliseconds, 0 before the first reload
+     */
+    long getLastReloadMillis();
+
+    /**
+     * Return when the published graph was published
+     * @return milliseconds since the epoch
+     */
+    long getPublishedAtMillis();
+
+    /**
+     * Return the number of reloads that failed to load or validate; the
+     * graph before each of them stayed published
+     * @return the number of failed reloads
+     */
+    long getFailedReloads();
+
+    /**
+     * Return why the last failed reload failed
+     * @return the error message, or null if no reload has failed
+     */
+    String getLastError();
+
+    /**
+     * Return the number of airports of the published graph
+     * @return the number of vertices
+     */
+    int getAirportCount();
+
+    /**
+     * Rebuilds the graph in the background, as if the watched files changed
+     */
+    void requestReload();
+}
@@ -0,0 +1,214 @@
+// A GraphSnapshot class saves a built MyGraph in a compact binary file
+// and loads it back through a memory-mapped FileChannel. Loading copies
+// the CSR arrays out of the mapping in bulk; it does not parse text or
+// create per-edge objects. Mapping instead leaves the arrays in the file
+// and wraps them in an OffHeapGraph, so only the labels reach the heap;
+// the edges are still read once when mapped, to validate them.
+//
+// File layout (big-endian ints):
+//   magic, version, vertex count n, edge count m,
+//   offsets[n+1], targets[m], weights[m], miles[m],
+//   labelEnds[n], then the label bytes (ISO-8859-1) back to back
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned binary snapshot of a graph: a vertex label table plus CSR arrays.
+ */
+public class GraphSnapshot {
+
+    private static final int MAGIC = 0x41474652; // "AGFR"
+    // bumped whenever the layout or what ingest puts in a graph changes, so
+    // snapshots saved by older code are rebuilt instead of served
+    private static final int VERSION = 3; // 2 added miles, 3 keeps only Table 1a records
+    private static final int HEADER_BYTES = 16;
+
+    /**
+     * Writes graph to file, replacing it atomically if it exists
+     * @param graph the graph to save
+     * @param file where to save it
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(MyGraph graph, Path file) throws IOException {
+        CSRGraph csr;
+        int[] miles;
+        synchronized (graph) { // the lock updateEdges holds, so both are of one version
+            csr = graph.adjacency();
+            miles = graph.distances();
+        }
+        int n = csr.vertexCount();
+        int m = csr.edgeCount();
+        byte[][] labels = new byte[n][];
+        int labelBytes = 0;
+        for (int i = 0; i < n; i++) {
+            labels[i] = graph.vertexAt(i).getLabel().getBytes(StandardCharsets.ISO_8859_1);
+            labelBytes += labels[i].length;
+        }
+
+        long size = HEADER_BYTES + 4L * (n + 1 + 3L * m + n) + labelBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("graph too large for a snapshot");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m);
+        IntBuffer ints = out.asIntBuffer();
+        ints.put(csr.offsets).put(csr.targets).put(csr.weights).put(miles);
+        int end = 0;
+        for (int i = 0; i < n; i++) {
+            end += labels[i].length;
+            ints.put(end);
+        }
+        out.position(out.position() + 4 * ints.position());
+        for (byte[] label : labels) {
+            out.put(label);
+        }
+        out.flip();
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a graph saved by write without copying its edges onto the heap.
+     * Every offset, target and weight is read once to validate the file,
+     * so opening takes time linear in the file size and pages the edge
+     * section in; afterwards the operating system may evict those pages
+     * and reads them back as searches touch them
+     * @param file the snapshot file
+     * @return a read-only graph backed by the file
+     * @throws IOException if the file cannot be read or is not a snapshot
+     *   of this version
+     */
+    public static OffHeapGraph map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException(file + ": not a graph snapshot");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + ": not a graph snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + ": unsupported snapshot version " + version);
+            }
+            int n = header.getInt();
+            int m = header.getInt();
+            if (n < 0 || m < 0 || HEADER_BYTES + 4L * (n + 1 + 3L * m + n) > size) {
+                throw new IOException(file + ": truncated snapshot");
+            }
+
+            long offsetsAt = HEADER_BYTES;
+            long targetsAt = offsetsAt + 4L * (n + 1);
+            long weightsAt = targetsAt + 4L * m;
+            long labelEndsAt = weightsAt + 8L * m; // past the miles
+            long labelStart = labelEndsAt + 4L * n;
+            ByteBuffer ends = channel.map(FileChannel.MapMode.READ_ONLY, labelEndsAt, 4L * n);
+            int labelBytes = n == 0 ? 0 : ends.getInt(4 * (n - 1));
+            if (labelBytes < 0 || labelStart + labelBytes > size) {
+                throw new IOException(file + ": truncated snapshot");
+            }
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, labelStart, labelBytes);
+            List<String> labels = new ArrayList<>(n);
+            int start = 0;
+            for (int i = 0; i < n; i++) {
+                int end = ends.getInt(4 * i);
+                if (end < start || end > labelBytes) {
+                    throw new IOException(file + ": corrupt snapshot");
+                }
+                byte[] label = new byte[end - start];
+                bytes.get(start, label);
+                labels.add(new String(label, StandardCharsets.ISO_8859_1));
+                start = end;
+            }
+
+            try {
+                return new OffHeapGraph(labels, OffHeapGraph.IntSegments.map(channel, offsetsAt, n + 1L),
+                        OffHeapGraph.IntSegments.map(channel, targetsAt, m),
+                        OffHeapGraph.IntSegments.map(channel, weightsAt, m));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + ": corrupt snapshot", e);
+            }
+        }
+    }
+
+    /**
+     * Loads a graph saved by write
+     * @param file the snapshot file
+     * @return the graph it contains
+     * @throws IOException if the file cannot be read or is not a snapshot
+     *   of this version
+     */
+    public static MyGraph read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException(file + ": not a graph snapshot");
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (map.getInt() != MAGIC) {
+                throw new IOException(file + ": not a graph snapshot");
+            }
+            int version = map.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + ": unsupported snapshot version " + version);
+            }
+            int n = map.getInt();
+            int m = map.getInt();
+            if (n < 0 || m < 0 || HEADER_BYTES + 4L * (n + 1 + 3L * m + n) > size) {
+                throw new IOException(file + ": truncated snapshot");
+            }
+
+            IntBuffer ints = map.asIntBuffer();
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[m];
+            int[] weights = new int[m];
+            int[] miles = new int[m];
+            int[] labelEnds = new int[n];
+            ints.get(offsets).get(targets).get(weights).get(miles).get(labelEnds);
+
+            int labelStart = HEADER_BYTES + 4 * (n + 1 + 3 * m + n);
+            int total = n == 0 ? 0 : labelEnds[n - 1];
+            if (total < 0 || labelStart + (long) total > size) {
+                throw new IOException(file + ": truncated snapshot");
+            }
+            byte[] labelBytes = new byte[total];
+            map.position(labelStart);
+            map.get(labelBytes);
+            List<String> labels = new ArrayList<>(n);
+            int start = 0;
+            for (int i = 0; i < n; i++) {
+                int end = labelEnds[i];
+                if (end < start || end > total) {
+                    throw new IOException(file + ": corrupt snapshot");
+                }
+                labels.add(new String(labelBytes, start, end - start, StandardCharsets.ISO_8859_1));
+                start = end;
+            }
+
+            try {
+                return new MyGraph(labels, new CSRGraph(offsets, targets, weights), miles);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + ": corrupt snapshot", e);
+            }
+        }
+    }
+}
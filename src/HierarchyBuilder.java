@@ -0,0 +1,377 @@
+// A HierarchyBuilder class contracts the vertices of a graph to build a
+// ContractionHierarchy. Contracting a vertex v removes it and adds a
+// shortcut a -> b for every in-neighbor a and out-neighbor b whose path
+// through v is the only cheapest one; a bounded Dijkstra search from a
+// that avoids v (a witness search) looks for another path that is no
+// dearer. Vertices are contracted in order of priority: the edge
+// difference (shortcuts added minus edges removed) plus the number of
+// neighbors already contracted, which spreads contraction evenly.
+//
+// Contraction runs in rounds. Each round takes every vertex whose
+// priority is lower than that of all its remaining neighbors; no two of
+// them are adjacent, so their shortcuts can be found in parallel. Their
+// witness searches also avoid the rest of the round, so a path kept as a
+// witness never goes through a vertex contracted at the same time. The
+// shortcuts are then applied on one thread, and the priorities of the
+// affected neighbors are recomputed in parallel.
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel vertex contraction of a CSRGraph.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class HierarchyBuilder {
+
+    // a witness search gives up after settling this many vertices, and
+    // the shortcut is added; that keeps the hierarchy correct, only larger
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    // the cheaper limit of the searches that estimate priorities, which
+    // only overcount shortcuts
+    private static final int PRIORITY_SETTLE_LIMIT = 50;
+
+    private final int n;
+    private final EdgeList[] out;   // edges to uncontracted vertices
+    private final EdgeList[] in;    // edges from uncontracted vertices
+    private final boolean[] contracted;
+    private final boolean[] inRound; // contracted in the current round
+    private final int[] priority;
+    private final int[] deleted;     // neighbors contracted so far
+    private final int[] rank;
+    private final EdgeList[] upward;   // final out-edges of each contracted vertex
+    private final EdgeList[] downward; // final in-edges of each contracted vertex
+    private final ScratchPool<Witness> witnesses;
+
+    // A growable list of (vertex, weight, middle) edges of one vertex.
+    // A vertex appears at most once; the cheapest edge to it is kept.
+    private static final class EdgeList {
+        int[] node = new int[4];
+        int[] weight = new int[4];
+        int[] middle = new int[4];
+        int size;
+
+        int find(int v) {
+            for (int i = 0; i < size; i++) {
+                if (node[i] == v) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Adds an edge to v, or lowers the existing one; returns whether
+        // the list changed
+        boolean offer(int v, int w, int via) {
+            int i = find(v);
+            if (i >= 0) {
+                if (weight[i] <= w) {
+                    return false;
+                }
+                weight[i] = w;
+                middle[i] = via;
+                return true;
+            }
+            if (size == node.length) {
+                node = Arrays.copyOf(node, size * 2);
+                weight = Arrays.copyOf(weight, size * 2);
+                middle = Arrays.copyOf(middle, size * 2);
+            }
+            node[size] = v;
+            weight[size] = w;
+            middle[size] = via;
+            size++;
+            return true;
+        }
+
+        void remove(int v) {
+            int i = find(v);
+            if (i >= 0) {
+                size--;
+                node[i] = node[size];
+                weight[i] = weight[size];
+                middle[i] = middle[size];
+            }
+        }
+
+        EdgeList copy() {
+            EdgeList c = new EdgeList();
+            c.node = Arrays.copyOf(node, size);
+            c.weight = Arrays.copyOf(weight, size);
+            c.middle = Arrays.copyOf(middle, size);
+            c.size = size;
+            return c;
+        }
+    }
+
+    // Scratch space of one witness search, reused across searches
+    private static final class Witness {
+        final int[] dist;
+        final int[] stamp;
+        final int[] goal; // equal to goalEpoch for the out-neighbors looked for
+        final IndexedMinHeap heap;
+        int epoch;
+        int goalEpoch;
+
+        Witness(int n) {
+            dist = new int[n];
+            stamp = new int[n];
+            goal = new int[n];
+            heap = new IndexedMinHeap(n);
+        }
+    }
+
+    /**
+     * Prepares to contract graph; self-loops are ignored
+     * @param graph the graph to contract
+     */
+    public HierarchyBuilder(CSRGraph graph) {
+        n = graph.vertexCount();
+        out = new EdgeList[n];
+        in = new EdgeList[n];
+        for (int v = 0; v < n; v++) {
+            out[v] = new EdgeList();
+            in[v] = new EdgeList();
+        }
+        for (int v = 0; v < n; v++) {
+            for (int i = graph.offsets[v]; i < graph.offsets[v + 1]; i++) {
+                int w = graph.targets[i];
+                if (w != v) {
+                    out[v].offer(w, graph.weights[i], -1);
+                    in[w].offer(v, graph.weights[i], -1);
+                }
+            }
+        }
+        contracted = new boolean[n];
+        inRound = new boolean[n];
+        priority = new int[n];
+        deleted = new int[n];
+        rank = new int[n];
+        upward = new EdgeList[n];
+        downward = new EdgeList[n];
+        witnesses = new ScratchPool<>(() -> new Witness(n));
+    }
+
+    /**
+     * Contracts every vertex
+     */
+    public void contract() {
+        IntStream.range(0, n).parallel().forEach(v -> priority[v] = priority(v));
+        int[] alive = new int[n];
+        for (int v = 0; v < n; v++) {
+            alive[v] = v;
+        }
+        int remaining = n;
+        int next = 0;
+        int[] touched = new int[n];
+        boolean[] isTouched = new boolean[n];
+        while (remaining > 0) {
+            int[] left = alive;
+            int[] round = IntStream.range(0, remaining).parallel()
+                    .map(i -> left[i]).filter(this::isLocalMinimum).toArray();
+            for (int v : round) {
+                inRound[v] = true;
+            }
+            int[][] shortcuts = new int[round.length][];
+            IntStream.range(0, round.length).parallel()
+                    .forEach(i -> shortcuts[i] = shortcuts(round[i], true));
+
+            int touchedCount = 0;
+            for (int i = 0; i < round.length; i++) {
+                int v = round[i];
+                rank[v] = next++;
+                contracted[v] = true;
+                upward[v] = out[v].copy();
+                downward[v] = in[v].copy();
+                for (EdgeList list : new EdgeList[] {out[v], in[v]}) {
+                    for (int j = 0; j < list.size; j++) {
+                        int u = list.node[j];
+                        out[u].remove(v);
+                        in[u].remove(v);
+                        deleted[u]++;
+                        if (!isTouched[u]) {
+                            isTouched[u] = true;
+                            touched[touchedCount++] = u;
+                        }
+                    }
+                }
+                out[v] = null;
+                in[v] = null;
+                int[] found = shortcuts[i];
+                for (int j = 0; j < found.length; j += 3) {
+                    if (out[found[j]].offer(found[j + 1], found[j + 2], v)) {
+                        in[found[j + 1]].offer(found[j], found[j + 2], v);
+                    }
+                }
+            }
+            for (int v : round) {
+                inRound[v] = false;
+            }
+
+            int[] changed = Arrays.copyOf(touched, touchedCount);
+            for (int u : changed) {
+                isTouched[u] = false;
+            }
+            IntStream.of(changed).parallel().filter(u -> !contracted[u])
+                    .forEach(u -> priority[u] = priority(u));
+            int kept = 0;
+            for (int i = 0; i < remaining; i++) {
+                if (!contracted[alive[i]]) {
+                    alive[kept++] = alive[i];
+                }
+            }
+            remaining = kept;
+        }
+    }
+
+    // Whether v comes before each of its remaining neighbors, by priority
+    // and then by a scrambled id that breaks ties evenly
+    private boolean isLocalMinimum(int v) {
+        for (EdgeList list : new EdgeList[] {out[v], in[v]}) {
+            for (int j = 0; j < list.size; j++) {
+                int u = list.node[j];
+                if (priority[u] < priority[v]
+                        || (priority[u] == priority[v] && u * 0x9E3779B1 < v * 0x9E3779B1)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Returns the priority of contracting v now
+    private int priority(int v) {
+        int added = shortcuts(v, false).length / 3;
+        return added - out[v].size - in[v].size + deleted[v];
+    }
+
+    // Returns the shortcuts contracting v would add, as (from, to, weight)
+    // triples. Witness searches avoid v; when contracting (avoidRound set)
+    // they also avoid the rest of the current round, otherwise they only
+    // estimate the count with a lower settle limit.
+    private int[] shortcuts(int v, boolean avoidRound) {
+        EdgeList ins = in[v];
+        EdgeList outs = out[v];
+        int[] found = new int[0];
+        int count = 0;
+        if (ins.size == 0 || outs.size == 0) {
+            return found;
+        }
+        int maxOut = 0;
+        for (int j = 0; j < outs.size; j++) {
+            maxOut = Math.max(maxOut, outs.weight[j]);
+        }
+        Witness witness = witnesses.borrow();
+        try {
+            if (++witness.goalEpoch == 0) {
+                Arrays.fill(witness.goal, 0);
+                witness.goalEpoch = 1;
+            }
+            for (int j = 0; j < outs.size; j++) {
+                witness.goal[outs.node[j]] = witness.goalEpoch;
+            }
+            for (int i = 0; i < ins.size; i++) {
+                int a = ins.node[i];
+                int toV = ins.weight[i];
+                search(witness, a, v, (long) toV + maxOut, outs.size, avoidRound);
+                for (int j = 0; j < outs.size; j++) {
+                    int b = outs.node[j];
+                    if (b == a) {
+                        continue;
+                    }
+                    long via = (long) toV + outs.weight[j];
+                    if (witness.stamp[b] != witness.epoch || witness.dist[b] > via) {
+                        if (count + 3 > found.length) {
+                            found = Arrays.copyOf(found, Math.max(12, found.length * 2));
+                        }
+                        found[count++] = a;
+                        found[count++] = b;
+                        found[count++] = (int) via;
+                    }
+                }
+            }
+        } finally {
+            witnesses.release(witness);
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    // Runs a Dijkstra search from source over the uncontracted vertices,
+    // never entering avoid or going past cost limit, until goals of its
+    // goal vertices or the settle limit are settled. Costs reached are
+    // left in the witness's dist, stamped with its epoch.
+    private void search(Witness w, int source, int avoid, long limit, int goals, boolean avoidRound) {
+        if (++w.epoch == 0) { // stamps wrapped around, start over
+            Arrays.fill(w.stamp, 0);
+            w.epoch = 1;
+        }
+        IndexedMinHeap heap = w.heap;
+        heap.clear();
+        w.stamp[source] = w.epoch;
+        w.dist[source] = 0;
+        heap.offer(source, 0);
+        int settled = 0;
+        int settleLimit = avoidRound ? WITNESS_SETTLE_LIMIT : PRIORITY_SETTLE_LIMIT;
+        while (!heap.isEmpty() && settled < settleLimit) {
+            int d = heap.peekKey();
+            int u = heap.poll();
+            settled++;
+            if (w.goal[u] == w.goalEpoch && --goals == 0) {
+                break;
+            }
+            EdgeList edges = out[u];
+            for (int j = 0; j < edges.size; j++) {
+                int x = edges.node[j];
+                if (x == avoid || (avoidRound && inRound[x])) {
+                    continue;
+                }
+                int nd = d + edges.weight[j];
+                if (nd > limit) {
+                    continue; // too dear to be a witness
+                }
+                if (w.stamp[x] != w.epoch || nd < w.dist[x]) {
+                    w.stamp[x] = w.epoch;
+                    w.dist[x] = nd;
+                    heap.offer(x, nd);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the contraction order found by contract
+     * @return the rank of each vertex, 0 for the first contracted
+     */
+    public int[] rank() {
+        return rank;
+    }
+
+    /**
+     * Return the edges of the hierarchy in one direction as four parallel
+     * arrays: lower-ranked vertex, higher-ranked vertex, weight, and
+     * middle vertex (-1 for an original edge). Upward edges run from the
+     * lower vertex; downward edges run into it.
+     * @param up whether to return the upward edges
+     * @return the edges as {from, to, weight, middle}
+     */
+    public int[][] edges(boolean up) {
+        EdgeList[] lists = up ? upward : downward;
+        int m = 0;
+        for (EdgeList list : lists) {
+            m += list.size;
+        }
+        int[][] edges = new int[4][m];
+        int k = 0;
+        for (int v = 0; v < n; v++) {
+            EdgeList list = lists[v];
+            for (int j = 0; j < list.size; j++, k++) {
+                edges[0][k] = v;
+                edges[1][k] = list.node[j];
+                edges[2][k] = list.weight[j];
+                edges[3][k] = list.middle[j];
+            }
+        }
+        return edges;
+    }
+}
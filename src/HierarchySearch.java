@@ -0,0 +1,192 @@
+// A HierarchySearch class answers point-to-point queries on a
+// ContractionHierarchy. Dijkstra's algorithm runs forward from the source
+// over the upward edges and backward from the target over the reversed
+// downward edges, so both sides only ever climb in rank and meet at the
+// highest vertex of the cheapest path. A side stops once its smallest
+// tentative cost can no longer beat the best meeting found; the other
+// side may go on. Shortcuts on the path are unpacked into the original
+// edges. An instance keeps its scratch arrays between runs and is not
+// thread-safe.
+
+import java.util.Arrays;
+
+/**
+ * Reusable bidirectional upward search over a ContractionHierarchy.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class HierarchySearch {
+
+    private static final int INFINITY = DijkstraSearch.INFINITY;
+
+    private final ContractionHierarchy ch;
+    private final int[] distF, distB; // cost from the source / to the target
+    private final int[] predF, succB; // next vertex toward source / target
+    private final int[] edgeF, edgeB; // hierarchy edge used to reach each vertex
+    private final int[] stampF, stampB;
+    private final IndexedMinHeap heapF, heapB;
+    private int epoch;
+    private int source;
+    private int meeting = -1;
+    private int settled;
+    private int relaxed;
+    private int[] route = new int[16]; // unpacked path, grown as needed
+    private int routeLength;
+
+    /**
+     * Creates a search with scratch space for every vertex of ch
+     * @param ch the hierarchy to search
+     */
+    public HierarchySearch(ContractionHierarchy ch) {
+        this.ch = ch;
+        int n = ch.vertexCount();
+        distF = new int[n];
+        distB = new int[n];
+        predF = new int[n];
+        succB = new int[n];
+        edgeF = new int[n];
+        edgeB = new int[n];
+        stampF = new int[n];
+        stampB = new int[n];
+        heapF = new IndexedMinHeap(n);
+        heapB = new IndexedMinHeap(n);
+    }
+
+    /**
+     * Finds the cheapest cost from source to target
+     * @param source the starting vertex id
+     * @param target the destination vertex id
+     * @return the cost, or DijkstraSearch.INFINITY if target is not reachable
+     */
+    public int run(int source, int target) {
+        if (++epoch == 0) { // stamps wrapped around, start over
+            Arrays.fill(stampF, 0);
+            Arrays.fill(stampB, 0);
+            epoch = 1;
+        }
+        heapF.clear();
+        heapB.clear();
+        settled = 0;
+        relaxed = 0;
+        this.source = source;
+        meeting = -1;
+
+        stampF[source] = epoch;
+        distF[source] = 0;
+        predF[source] = -1;
+        stampB[target] = epoch;
+        distB[target] = 0;
+        succB[target] = -1;
+        if (source == target) {
+            meeting = source;
+            return 0;
+        }
+        heapF.offer(source, 0);
+        heapB.offer(target, 0);
+
+        long best = INFINITY;
+        while (true) {
+            boolean forward = !heapF.isEmpty() && heapF.peekKey() < best;
+            boolean backward = !heapB.isEmpty() && heapB.peekKey() < best;
+            if (!forward && !backward) {
+                break;
+            }
+            settled++;
+            if (forward && (!backward || heapF.peekKey() <= heapB.peekKey())) {
+                int d = heapF.peekKey();
+                int u = heapF.poll();
+                best = relax(ch.up, u, d, distF, predF, edgeF, stampF, heapF, distB, stampB, best);
+            } else {
+                int d = heapB.peekKey();
+                int u = heapB.poll();
+                best = relax(ch.down, u, d, distB, succB, edgeB, stampB, heapB, distF, stampF, best);
+            }
+        }
+        return (int) best;
+    }
+
+    // Relaxes the edges of u on one side and returns the new best cost,
+    // recording the meeting vertex whenever it improves
+    private long relax(CSRGraph g, int u, int d, int[] dist, int[] link, int[] edge, int[] stamp,
+                       IndexedMinHeap heap, int[] otherDist, int[] otherStamp, long best) {
+        if (otherStamp[u] == epoch && (long) d + otherDist[u] < best) {
+            best = (long) d + otherDist[u];
+            meeting = u;
+        }
+        relaxed += g.offsets[u + 1] - g.offsets[u];
+        for (int i = g.offsets[u], end = g.offsets[u + 1]; i < end; i++) {
+            int v = g.targets[i];
+            int nd = d + g.weights[i];
+            if (stamp[v] != epoch || nd < dist[v]) {
+                stamp[v] = epoch;
+                dist[v] = nd;
+                link[v] = u;
+                edge[v] = i;
+                heap.offer(v, nd);
+                if (otherStamp[v] == epoch && (long) nd + otherDist[v] < best) {
+                    best = (long) nd + otherDist[v];
+                    meeting = v;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Return the vertices of the cheapest path of the last run, with every
+     * shortcut on it unpacked into edges of the original graph
+     * Pre: the last run found a path
+     * @return the vertex ids from the source to the target
+     */
+    public int[] path() {
+        int[] upward = new int[8]; // forward half, from the meeting back down to the source
+        int count = 0;
+        for (int v = meeting; v != source; v = predF[v]) {
+            if (count == upward.length) {
+                upward = Arrays.copyOf(upward, count * 2);
+            }
+            upward[count++] = v;
+        }
+        routeLength = 0;
+        append(source);
+        for (int i = count - 1; i >= 0; i--) {
+            int v = upward[i];
+            ch.unpack(predF[v], v, ch.upMiddle[edgeF[v]], this::append);
+        }
+        for (int v = meeting; succB[v] != -1; v = succB[v]) {
+            ch.unpack(v, succB[v], ch.downMiddle[edgeB[v]], this::append);
+        }
+        return Arrays.copyOf(route, routeLength);
+    }
+
+    // Adds v to the end of the path being unpacked
+    private void append(int v) {
+        if (routeLength == route.length) {
+            route = Arrays.copyOf(route, routeLength * 2);
+        }
+        route[routeLength++] = v;
+    }
+
+    /**
+     * Return the number of vertices settled by the last run, on both sides
+     * @return the number of vertices removed from the heaps
+     */
+    public int settledCount() {
+        return settled;
+    }
+
+    /**
+     * Return the number of edges relaxed by the last run, on both sides
+     * @return the number of hierarchy edges scanned from settled vertices
+     */
+    public int relaxedCount() {
+        return relaxed;
+    }
+
+    /**
+     * Return the number of heap operations of the last run, on both sides
+     * @return the inserts, decrease-keys and polls of the last run
+     */
+    public int heapOperationCount() {
+        return heapF.operationCount() + heapB.operationCount();
+    }
+}
@@ -0,0 +1,202 @@
+// A HopSearch class finds the cheapest path that takes at most a given
+// number of flights, by running Bellman-Ford for that many rounds over
+// the CSR arrays. Round r extends the paths of at most r - 1 flights by
+// one flight, reading costs from one int array and writing them to the
+// other, so a path never takes two flights in one round; the arrays then
+// swap. Only the vertices that got cheaper in the last round are scanned
+// again. Because the cheapest path within r flights need not extend the
+// one within r - 1, a single predecessor array is not enough; every
+// improvement is logged with its round, and the path is rebuilt from the
+// log. All scratch arrays are kept between runs and reset through the
+// list of touched vertices, so a query allocates nothing but its result.
+// An instance is not thread-safe.
+
+import java.util.Arrays;
+
+/**
+ * Reusable hop-constrained single-pair search over a CSRGraph.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class HopSearch {
+
+    private final CSRGraph graph;
+    private int[] cost;     // cheapest cost within the rounds so far
+    private int[] next;     // cost being built by the current round
+    private final int[] via;     // predecessor of each vertex improved this round
+    private final int[] last;    // newest log entry of each vertex, -1 if none
+    private final int[] touched; // vertices with a finite cost
+    private int touchedCount;
+    private int[] frontier;      // vertices that got cheaper in the last round
+    private int[] nextFrontier;
+    private final boolean[] queued; // whether a vertex is in nextFrontier
+    private int[] logVertex = new int[16]; // improvements, in round order
+    private int[] logPred = new int[16];
+    private int[] logRound = new int[16];
+    private int[] logPrev = new int[16];   // older entry of the same vertex, -1 if none
+    private int logSize;
+    private int scanned;
+    private int relaxed;
+
+    /**
+     * Creates a search with scratch space for every vertex of graph
+     * @param graph the graph to search
+     */
+    public HopSearch(CSRGraph graph) {
+        this.graph = graph;
+        int n = graph.vertexCount();
+        cost = new int[n];
+        next = new int[n];
+        Arrays.fill(cost, DijkstraSearch.INFINITY);
+        Arrays.fill(next, DijkstraSearch.INFINITY);
+        via = new int[n];
+        last = new int[n];
+        Arrays.fill(last, -1);
+        touched = new int[n];
+        frontier = new int[n];
+        nextFrontier = new int[n];
+        queued = new boolean[n];
+    }
+
+    /**
+     * Finds the cheapest path from source to target with at most
+     * maxFlights flights
+     * @param source the starting vertex id
+     * @param target the destination vertex id
+     * @param maxFlights the largest number of edges on the path
+     * @return the cost of the path, or DijkstraSearch.INFINITY if there is
+     *   none within maxFlights
+     */
+    public int run(int source, int target, int maxFlights) {
+        for (int k = 0; k < touchedCount; k++) {
+            int v = touched[k];
+            cost[v] = DijkstraSearch.INFINITY;
+            next[v] = DijkstraSearch.INFINITY;
+            last[v] = -1;
+        }
+        touchedCount = 0;
+        logSize = 0;
+        scanned = 0;
+        relaxed = 0;
+
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+        touched[touchedCount++] = source;
+        cost[source] = 0;
+        next[source] = 0;
+        log(source, -1, 0);
+        frontier[0] = source;
+        int size = 1;
+        int best = source == target ? 0 : DijkstraSearch.INFINITY;
+        int rounds = Math.min(maxFlights, graph.vertexCount() - 1);
+        for (int round = 1; round <= rounds && size > 0; round++) {
+            int count = 0;
+            for (int k = 0; k < size; k++) {
+                int u = frontier[k];
+                int d = cost[u];
+                if (d >= best) { // nonnegative costs, so no extension can win
+                    continue;
+                }
+                scanned++;
+                relaxed += offsets[u + 1] - offsets[u];
+                for (int i = offsets[u], end = offsets[u + 1]; i < end; i++) {
+                    int v = targets[i];
+                    int nd = d + weights[i];
+                    if (nd < next[v] && nd < best) {
+                        if (next[v] == DijkstraSearch.INFINITY) {
+                            touched[touchedCount++] = v;
+                        }
+                        next[v] = nd;
+                        via[v] = u;
+                        if (!queued[v]) {
+                            queued[v] = true;
+                            nextFrontier[count++] = v;
+                        }
+                        if (v == target) {
+                            best = nd;
+                        }
+                    }
+                }
+            }
+
+            // the arrays now differ only where this round improved a cost
+            int[] swap = cost;
+            cost = next;
+            next = swap;
+            swap = frontier;
+            frontier = nextFrontier;
+            nextFrontier = swap;
+            size = count;
+            for (int k = 0; k < size; k++) {
+                int v = frontier[k];
+                next[v] = cost[v];
+                queued[v] = false;
+                log(v, via[v], round);
+            }
+        }
+        return best;
+    }
+
+    // Appends an improvement of v, reached from pred in round
+    private void log(int v, int pred, int round) {
+        if (logSize == logVertex.length) {
+            int capacity = 2 * logSize;
+            logVertex = Arrays.copyOf(logVertex, capacity);
+            logPred = Arrays.copyOf(logPred, capacity);
+            logRound = Arrays.copyOf(logRound, capacity);
+            logPrev = Arrays.copyOf(logPrev, capacity);
+        }
+        logVertex[logSize] = v;
+        logPred[logSize] = pred;
+        logRound[logSize] = round;
+        logPrev[logSize] = last[v];
+        last[v] = logSize++;
+    }
+
+    /**
+     * Returns the path found by the last run to target
+     * Pre: the last run reached target
+     * @param target the destination vertex id of the last run
+     * @return the vertex ids of the path, from the source to target
+     */
+    public int[] path(int target) {
+        int length = 0;
+        for (int e = last[target]; e != -1; e = entryBefore(logPred[e], logRound[e])) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int e = last[target]; e != -1; e = entryBefore(logPred[e], logRound[e])) {
+            path[--length] = logVertex[e];
+        }
+        return path;
+    }
+
+    // Returns the entry of v that held its cost when round began, or -1
+    // if v is -1
+    private int entryBefore(int v, int round) {
+        if (v == -1) {
+            return -1;
+        }
+        int e = last[v];
+        while (logRound[e] >= round) {
+            e = logPrev[e];
+        }
+        return e;
+    }
+
+    /**
+     * Return the number of vertices whose out-edges the last run scanned
+     * @return the number of scans, counting a vertex once per round
+     */
+    public int scannedCount() {
+        return scanned;
+    }
+
+    /**
+     * Return the number of edges relaxed by the last run
+     * @return the number of out-edges scanned
+     */
+    public int relaxedCount() {
+        return relaxed;
+    }
+}
@@ -0,0 +1,161 @@
+// An IndexedMinHeap class is a binary min-heap over dense int ids with
+// int keys. It supports decrease-key in O(log n) through a position
+// array, and needs no allocation after construction. It counts its
+// inserts, decrease-keys and removals since the last clear.
+
+/**
+ * A primitive indexed binary min-heap of vertex ids keyed by int cost.
+ */
+public class IndexedMinHeap {
+
+    private final int[] heap; // ids in heap order
+    private final int[] keys; // key of each id
+    private final int[] pos;  // position of each id in heap, -1 if absent
+    private int size;
+    private int operations; // inserts, decrease-keys and polls since clear
+
+    /**
+     * Creates an empty heap for ids in [0, capacity)
+     * @param capacity the number of distinct ids
+     */
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        keys = new int[capacity];
+        pos = new int[capacity];
+        java.util.Arrays.fill(pos, -1);
+    }
+
+    /**
+     * Return whether the heap is empty
+     * @return true if there are no ids in the heap
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return the number of ids in the heap
+     * @return the number of ids in the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether the given id is in the heap
+     * @param id an id
+     * @return true if id is in the heap
+     */
+    public boolean contains(int id) {
+        return pos[id] >= 0;
+    }
+
+    /**
+     * Inserts id with the given key, or lowers its key if it is already
+     * present with a larger key.
+     * @param id an id
+     * @param key its key
+     */
+    public void offer(int id, int key) {
+        int p = pos[id];
+        if (p < 0) {
+            p = size++;
+            heap[p] = id;
+            pos[id] = p;
+            keys[id] = key;
+            siftUp(p);
+            operations++;
+        } else if (key < keys[id]) {
+            keys[id] = key;
+            siftUp(p);
+            operations++;
+        }
+    }
+
+    /**
+     * Return the key of the id with the minimum key
+     * Pre: the heap is not empty
+     * @return the minimum key
+     */
+    public int peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Removes and returns the id with the minimum key
+     * Pre: the heap is not empty
+     * @return the id with the minimum key
+     */
+    public int poll() {
+        int top = heap[0];
+        pos[top] = -1;
+        operations++;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            pos[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Removes every id from the heap in O(size)
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            pos[heap[i]] = -1;
+        }
+        size = 0;
+        operations = 0;
+    }
+
+    /**
+     * Return the number of inserts, decrease-keys and polls since the
+     * heap was created or last cleared
+     * @return the number of heap operations
+     */
+    public int operationCount() {
+        return operations;
+    }
+
+    private void siftUp(int p) {
+        int id = heap[p];
+        int key = keys[id];
+        while (p > 0) {
+            int parent = (p - 1) >>> 1;
+            int pid = heap[parent];
+            if (keys[pid] <= key) {
+                break;
+            }
+            heap[p] = pid;
+            pos[pid] = p;
+            p = parent;
+        }
+        heap[p] = id;
+        pos[id] = p;
+    }
+
+    private void siftDown(int p) {
+        int id = heap[p];
+        int key = keys[id];
+        int half = size >>> 1;
+        while (p < half) {
+            int child = 2 * p + 1;
+            int cid = heap[child];
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[cid]) {
+                child = right;
+                cid = heap[child];
+            }
+            if (key <= keys[cid]) {
+                break;
+            }
+            heap[p] = cid;
+            pos[cid] = p;
+            p = child;
+        }
+        heap[p] = id;
+        pos[id] = p;
+    }
+}
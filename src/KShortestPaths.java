@@ -0,0 +1,176 @@
+// A KShortestPaths class finds the k cheapest loopless paths between two
+// vertices with Yen's algorithm, refined as Lawler suggests: each new path
+// is spurred only from the vertex where it left its parent path onward.
+// A spur search from position i of the last path blocks the vertices
+// before i, so the result stays loopless, and blocks the next edge of
+// every accepted path with the same first i+1 vertices, so it deviates.
+// The spur searches of one round are independent; on large graphs they
+// run in parallel on the common fork-join pool, each borrowing a
+// preallocated SpurSearch from a shared pool. An instance is not
+// thread-safe, but instances sharing one pool may run at once.
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Yen's k-shortest loopless paths over a CSRGraph.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class KShortestPaths {
+
+    // graphs with fewer edges run their spur searches on one thread,
+    // since a search there is cheaper than handing it to another core
+    private static final int PARALLEL_EDGES = 1 << 15;
+
+    private final CSRGraph graph;
+    private final ScratchPool<SpurSearch> searches;
+    private final List<Route> accepted = new ArrayList<>();
+
+    private static final class Route implements Comparable<Route> {
+        final int[] vertices;
+        final int cost;
+        final int deviation; // position where it left its parent path
+
+        Route(int[] vertices, int cost, int deviation) {
+            this.vertices = vertices;
+            this.cost = cost;
+            this.deviation = deviation;
+        }
+
+        // cheapest first, then fewest vertices, then by vertex ids
+        public int compareTo(Route other) {
+            if (cost != other.cost) {
+                return Integer.compare(cost, other.cost);
+            }
+            if (vertices.length != other.vertices.length) {
+                return Integer.compare(vertices.length, other.vertices.length);
+            }
+            return Arrays.compare(vertices, other.vertices);
+        }
+
+        public boolean equals(Object obj) {
+            return obj instanceof Route && Arrays.equals(vertices, ((Route) obj).vertices);
+        }
+
+        public int hashCode() {
+            return Arrays.hashCode(vertices);
+        }
+    }
+
+    /**
+     * Creates a finder over graph
+     * @param graph the graph to search
+     * @param searches a pool of spur searches over the same graph
+     */
+    public KShortestPaths(CSRGraph graph, ScratchPool<SpurSearch> searches) {
+        this.graph = graph;
+        this.searches = searches;
+    }
+
+    /**
+     * Finds up to k cheapest loopless paths from source to target
+     * @param source the starting vertex id
+     * @param target the destination vertex id
+     * @param k the number of paths wanted, at least 1
+     * @return the number of paths found, at most k and 0 if target is not
+     *   reachable
+     */
+    public int run(int source, int target, int k) {
+        accepted.clear();
+        Route first = spur(new int[] {source}, new int[] {0}, 0, target);
+        if (first == null) {
+            return 0;
+        }
+        accepted.add(first);
+        PriorityQueue<Route> candidates = new PriorityQueue<>();
+        Set<Route> seen = new HashSet<>();
+        seen.add(first);
+        while (accepted.size() < k) {
+            Route last = accepted.get(accepted.size() - 1);
+            int[] root = last.vertices;
+            int[] rootCost = new int[root.length]; // cost of root[0..i]
+            for (int i = 1; i < root.length; i++) {
+                rootCost[i] = rootCost[i - 1] + graph.edgeCost(root[i - 1], root[i]);
+            }
+            int spurs = root.length - 1 - last.deviation;
+            Route[] found = new Route[Math.max(0, spurs)];
+            IntConsumer spurAt = j -> found[j] = spur(root, rootCost, last.deviation + j, target);
+            if (spurs > 1 && graph.edgeCount() >= PARALLEL_EDGES) {
+                IntStream.range(0, spurs).parallel().forEach(spurAt);
+            } else {
+                for (int j = 0; j < spurs; j++) {
+                    spurAt.accept(j);
+                }
+            }
+            for (Route r : found) {
+                if (r != null && seen.add(r)) {
+                    candidates.add(r);
+                }
+            }
+            Route next = candidates.poll();
+            if (next == null) {
+                break; // there are fewer than k loopless paths
+            }
+            accepted.add(next);
+        }
+        return accepted.size();
+    }
+
+    // Returns the cheapest path that follows root up to root[i] and then
+    // leaves every accepted path with that prefix, or null if none exists.
+    // Reads accepted but does not change it, so spurs may run at once.
+    private Route spur(int[] root, int[] rootCost, int i, int target) {
+        SpurSearch search = searches.borrow();
+        try {
+            search.clearBlocks();
+            for (int j = 0; j < i; j++) {
+                search.blockVertex(root[j]);
+            }
+            for (Route p : accepted) {
+                int[] pv = p.vertices;
+                if (pv.length > i + 1 && Arrays.equals(pv, 0, i + 1, root, 0, i + 1)) {
+                    search.blockEdge(graph.edgeIndex(pv[i], pv[i + 1]));
+                }
+            }
+            int cost = search.run(root[i], target);
+            if (cost == DijkstraSearch.INFINITY) {
+                return null;
+            }
+            int length = 0;
+            for (int v = target; v != -1; v = search.pred(v)) {
+                length++;
+            }
+            int[] vertices = Arrays.copyOf(root, i + length);
+            for (int v = target, at = i + length - 1; v != -1; v = search.pred(v)) {
+                vertices[at--] = v;
+            }
+            return new Route(vertices, rootCost[i] + cost, i);
+        } finally {
+            searches.release(search);
+        }
+    }
+
+    /**
+     * Return the vertices of the i-th cheapest path found by the last run
+     * @param i the path number, below the count returned by run
+     * @return the vertex ids of the path, source first
+     */
+    public int[] path(int i) {
+        return accepted.get(i).vertices;
+    }
+
+    /**
+     * Return the cost of the i-th cheapest path found by the last run
+     * @param i the path number, below the count returned by run
+     * @return its cost
+     */
+    public int cost(int i) {
+        return accepted.get(i).cost;
+    }
+}
@@ -0,0 +1,46 @@
+// A KruskalMST class computes a minimum spanning forest of a CSRGraph,
+// treating every directed edge as undirected. The edges are sorted once
+// as packed (weight, edge index) longs, optionally with a parallel sort,
+// and then scanned in order with a UnionFind to skip edges that would
+// close a cycle. A disconnected graph yields one tree per component.
+
+import java.util.Arrays;
+
+/**
+ * Kruskal's algorithm over CSR arrays.
+ */
+public class KruskalMST {
+
+    /**
+     * Returns the edges of a minimum spanning forest of graph
+     * Pre: every weight is nonnegative
+     * @param graph the graph, whose edges are taken as undirected
+     * @param parallel whether to sort the edges with Arrays.parallelSort
+     * @return the CSR indices of the chosen edges, in nondecreasing weight
+     */
+    public static int[] spanningForest(CSRGraph graph, boolean parallel) {
+        int n = graph.vertexCount();
+        int m = graph.edgeCount();
+        long[] order = new long[m];
+        for (int i = 0; i < m; i++) {
+            order[i] = ((long) graph.weights[i] << 32) | i;
+        }
+        if (parallel) {
+            Arrays.parallelSort(order);
+        } else {
+            Arrays.sort(order);
+        }
+
+        int[] sources = graph.sources();
+        UnionFind sets = new UnionFind(n);
+        int[] chosen = new int[Math.max(0, n - 1)];
+        int count = 0;
+        for (int k = 0; k < m && count < chosen.length; k++) {
+            int e = (int) order[k];
+            if (sets.union(sources[e], graph.targets[e])) {
+                chosen[count++] = e;
+            }
+        }
+        return count == chosen.length ? chosen : Arrays.copyOf(chosen, count);
+    }
+}
@@ -0,0 +1,133 @@
+// A Landmarks class precomputes exact costs from and to a few landmark
+// vertices, chosen far apart, and turns them into lower bounds on the cost
+// between any two vertices through the triangle inequality (the ALT
+// technique). The bounds are admissible for every pair, which is what
+// goal-directed search needs; fares are not proportional to distance, so
+// a bound derived from coordinates or miles would not be.
+
+import java.util.Arrays;
+
+/**
+ * Landmark cost tables giving admissible lower bounds on path costs.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class Landmarks {
+
+    private static final int INFINITY = DijkstraSearch.INFINITY;
+
+    private final int count;
+    private final int[] landmarks;
+    private final int[] from; // from[v*count+k]: cost from landmark k to v
+    private final int[] to;   // to[v*count+k]: cost from v to landmark k
+
+    /**
+     * Picks up to count landmarks by farthest selection and computes their
+     * cost tables
+     * @param forward the graph
+     * @param backward the reverse of forward
+     * @param count the number of landmarks wanted
+     */
+    public Landmarks(CSRGraph forward, CSRGraph backward, int count) {
+        int n = forward.vertexCount();
+        this.count = Math.min(count, n);
+        landmarks = new int[this.count];
+        from = new int[n * this.count];
+        to = new int[n * this.count];
+
+        DijkstraSearch out = new DijkstraSearch(forward);
+        DijkstraSearch in = new DijkstraSearch(backward);
+        // closeness[v]: smallest known cost between v and any landmark so far
+        long[] closeness = new long[n];
+        Arrays.fill(closeness, Long.MAX_VALUE);
+        int next = 0;
+        for (int k = 0; k < this.count; k++) {
+            landmarks[k] = next;
+            out.run(next, -1);
+            in.run(next, -1);
+            for (int v = 0; v < n; v++) {
+                int df = out.dist(v);
+                int db = in.dist(v);
+                from[v * this.count + k] = df;
+                to[v * this.count + k] = db;
+                long near = Math.min(df == INFINITY ? Long.MAX_VALUE : df,
+                                     db == INFINITY ? Long.MAX_VALUE : db);
+                closeness[v] = Math.min(closeness[v], near);
+            }
+            // the next landmark is the vertex farthest from all chosen ones;
+            // vertices no landmark reaches yet come first
+            long far = -1;
+            for (int v = 0; v < n; v++) {
+                if (closeness[v] > far) {
+                    far = closeness[v];
+                    next = v;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return a lower bound on the cost from v to t
+     * @param v a vertex id
+     * @param t the target vertex id
+     * @return a cost no greater than the cheapest path from v to t
+     */
+    public int lowerBound(int v, int t) {
+        int bound = 0;
+        int vi = v * count;
+        int ti = t * count;
+        for (int k = 0; k < count; k++) {
+            // d(L,t) <= d(L,v) + d(v,t)
+            int lt = from[ti + k];
+            int lv = from[vi + k];
+            if (lt != INFINITY && lv != INFINITY && lt - lv > bound) {
+                bound = lt - lv;
+            }
+            // d(v,L) <= d(v,t) + d(t,L)
+            int vl = to[vi + k];
+            int tl = to[ti + k];
+            if (vl != INFINITY && tl != INFINITY && vl - tl > bound) {
+                bound = vl - tl;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Return whether the tables prove that t cannot be reached from v,
+     * i.e. some landmark reaches v but not t, or t reaches a landmark that
+     * v does not reach.
+     * @param v a vertex id
+     * @param t the target vertex id
+     * @return true if there is certainly no path from v to t
+     */
+    public boolean unreachable(int v, int t) {
+        int vi = v * count;
+        int ti = t * count;
+        for (int k = 0; k < count; k++) {
+            if (from[vi + k] != INFINITY && from[ti + k] == INFINITY) {
+                return true;
+            }
+            if (to[ti + k] != INFINITY && to[vi + k] == INFINITY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the vertex id of landmark k
+     * @param k a landmark index less than count()
+     * @return the landmark vertex
+     */
+    public int landmark(int k) {
+        return landmarks[k];
+    }
+
+    /**
+     * Return the number of landmarks
+     * @return the number of landmarks
+     */
+    public int count() {
+        return count;
+    }
+}
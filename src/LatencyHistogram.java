@@ -0,0 +1,123 @@
+// A LatencyHistogram class counts durations in log-linear buckets, as
+// HdrHistogram does: values below 128 get a bucket each, and every larger
+// power-of-two range is split into 64 buckets, so a recorded value is
+// known to within 1/64 (about 1.6%) of itself. The buckets are one flat
+// AtomicLongArray, so recording from many threads is lock-free and
+// allocates nothing.
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent fixed-size histogram of nonnegative long values.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;   // exact values below this
+    private static final int HALF_COUNT = SUB_COUNT >>> 1; // buckets per power of two above it
+    private static final int BUCKETS = SUB_COUNT + (64 - SUB_BITS) * HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one value
+     * @param value a duration or other nonnegative amount; negative values
+     *   count as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucket(value));
+        total.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    // Returns the bucket of a nonnegative value
+    private static int bucket(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        return SUB_COUNT + (shift - 1) * HALF_COUNT + (int) (value >>> shift) - HALF_COUNT;
+    }
+
+    // Returns the largest value that falls in bucket b
+    private static long highest(int b) {
+        if (b < SUB_COUNT) {
+            return b;
+        }
+        int shift = (b - SUB_COUNT) / HALF_COUNT + 1;
+        long sub = (b - SUB_COUNT) % HALF_COUNT + HALF_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Return the number of values recorded
+     * @return the count
+     */
+    public long count() {
+        long n = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            n += counts.get(b);
+        }
+        return n;
+    }
+
+    /**
+     * Return the mean of the values recorded
+     * @return the mean, or 0 if there are none
+     */
+    public double mean() {
+        long n = count();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * Return the largest value recorded
+     * @return the maximum, or 0 if there are none
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Return a value that at least the given share of recorded values do
+     * not exceed, to within the bucket precision
+     * @param percentile between 0 and 100
+     * @return the percentile, or 0 if there are no values
+     */
+    public long percentile(double percentile) {
+        long n = count();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts.get(b);
+            if (seen >= rank) {
+                return Math.min(highest(b), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Forgets every recorded value. Values recorded while this runs may be
+     * partly kept.
+     */
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) {
+            counts.set(b, 0);
+        }
+        total.reset();
+        max.set(0);
+    }
+}
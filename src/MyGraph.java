@@ -1,355 +1,1305 @@
-// A MyGraph class is used to get a set of vertices and edges,
-// and find the adjacent vertices to a vertex and the cost from one
-// edge to another. It also computes the shortest path (with minimum cost)
-// from one vertex to another vertex in the graph as well as
-// the minimum spanning tree of the graph
-
-import java.util.*;
-
-/**
- * A representation of a graph.
- * Assumes that we do not have negative cost edges in the graph.
- */
-public class MyGraph implements Graph {
-
-    private List<Vertex> vertices;
-    private Set<Edge> edges;
-    private Map<Vertex, Integer> vertexInt; // vertex and its index in array matrix
-    private int[][] adjMat; // matrix to contain cost between vertices
-
-    /**
-     * Pre: Throws an IllegalArgumentException if vertices are not found in the graph,
-     if weight is negative, or if the same directed edges have different weight.
-     * Post:Creates a MyGraph object with the given collection of vertices
-     * 		and the given collection of edges.
-     * @param v a collection of the vertices in this graph
-     * @param e a collection of the edges in this graph
-     */
-
-    public MyGraph(Collection<Vertex> v, Collection<Edge> e) {
-        Collection<Vertex> copiedVCol = new ArrayList<Vertex>(); // new storage for copied vertices
-        Collection<Edge> copiedEgCol = new ArrayList<Edge>(); // new storage for copied edges
-
-        // Moves a copy of vertices to a vertex storage
-        for (Vertex target:v) {
-            Vertex newV = new Vertex(target.toString());
-            copiedVCol.add(newV);
-        }
-
-        // Moves a copy of edges to an edge storage
-        for (Edge target:e) {
-            Edge newEg = new Edge(target.getSource(), target.getDestination(), target.getWeight());
-            copiedEgCol.add(newEg);
-        }
-
-        vertexInt = new HashMap<Vertex, Integer>();
-        edges = new HashSet<Edge>(copiedEgCol);
-        Set<Vertex> tempVertices = new HashSet<Vertex>(copiedVCol); // no duplicated vertices
-        vertices = new ArrayList<Vertex>(tempVertices);
-
-        for (Vertex target:vertices) {
-            int idx = vertices.indexOf(target);
-            vertexInt.put(target, idx);
-        }
-
-        for (Edge targetEdge: e) {
-            if (!vertices.contains(targetEdge.getDestination())
-                    || !vertices.contains(targetEdge.getSource())) {
-                throw new IllegalArgumentException();
-            }
-            if (targetEdge.getWeight() < 0) {
-                throw new IllegalArgumentException();
-            }
-        }
-
-        // Fills the matrix with all -1
-        adjMat = new int[vertices.size()][vertices.size()];
-        for (int i=0; i<vertices.size(); i++) {
-            for (int j=0; j<vertices.size(); j++) {
-                adjMat[i][j] = -1;
-            }
-        }
-
-        // Completes adjacency matrix with cost from vertex to vertex
-        for (Edge targetE: edges) {
-            int row = vertexInt.get(targetE.getSource());
-            int column = vertexInt.get(targetE.getDestination());
-            if (adjMat[row][column] != -1) {
-                throw new IllegalArgumentException();
-            }
-            adjMat[row][column] = targetE.getWeight();
-        }
-    }
-
-
-    /**
-     * Return the collection of vertices of this graph
-     * @return the vertices as a collection (which is anything iterable)
-     */
-    public Collection<Vertex> vertices() {
-        Collection<Vertex> newVertices = new ArrayList<Vertex>(); // new storage for copied vertices
-
-        // Moves a copy of vertices
-        for (Vertex target:vertices) {
-            Vertex newV = new Vertex(target.toString());
-            newVertices.add(newV);
-        }
-        return newVertices;
-    }
-
-    /**
-     * Return the collection of edges of this graph
-     * @return the edges as a collection (which is anything iterable)
-     */
-    public Collection<Edge> edges() {
-        Collection<Edge> newEdges = new ArrayList<Edge>(); // new storage for copied edges
-
-        // Moves a copy of edges
-        for (Edge target:edges) {
-            Edge newEg = new Edge(target.getSource(), target.getDestination(), target.getWeight());
-            newEdges.add(newEg);
-        }
-        return newEdges;
-    }
-
-    /**
-     * Return a collection of vertices adjacent to a given vertex v.
-     *   i.e., the set of all vertices w where edges v -> w exist in the graph.
-     * Return an empty collection if there are no adjacent vertices.
-     * @param v one of the vertices in the graph
-     * @return an iterable collection of vertices adjacent to v in the graph
-     * @throws IllegalArgumentException if v does not exist.
-     */
-    public Collection<Vertex> adjacentVertices(Vertex v) {
-        if (!vertexInt.containsKey(v) || v.equals(null)) {
-            throw new IllegalArgumentException();
-        }
-        List<Vertex> adjacent = new LinkedList<>();
-
-        int idx = vertexInt.get(v);
-        for (int i=0; i<vertices.size(); i++) {
-            if (adjMat[idx][i] != -1) {
-                adjacent.add(vertices.get(i)); //adjacent vertex
-            }
-        }
-        return adjacent;
-    }
-
-    /**
-     * Test whether vertex b is adjacent to vertex a (i.e. a -> b) in a directed graph.
-     * Assumes that we do not have negative cost edges in the graph.
-     * @param a one vertex
-     * @param b another vertex
-     * @return cost of edge if there is a directed edge from a to b in the graph,
-     * return -1 otherwise.
-     * @throws IllegalArgumentException if a or b do not exist.
-     */
-    public int edgeCost(Vertex a, Vertex b) {
-        if (!vertexInt.containsKey(a) || !vertexInt.containsKey(b)
-                || a.equals(null) || b.equals(null)) {
-            throw new IllegalArgumentException();
-        }
-
-        int sourceInt = vertexInt.get(a);
-        int destinInt = vertexInt.get(b);
-        return adjMat[sourceInt][destinInt];
-    }
-
-    /**
-     * Returns the shortest path from a to b in the graph, or null if there is
-     * no such path.  Assumes all edge weights are nonnegative.
-     * Uses Dijkstra's algorithm.
-     * @param a the starting vertex
-     * @param b the destination vertex
-     * @return a Path where the vertices indicate the path from a to b in order
-     *   and contains a (first) and b (last) and the cost is the cost of
-     *   the path. Returns null if b is not reachable from a.
-     * @throws IllegalArgumentException if a or b does not exist.
-     */
-    public Path shortestPath(Vertex a, Vertex b) {
-        Set<Vertex> unchecked = new HashSet<Vertex>();
-        Map<Vertex, Integer> cost = new HashMap<Vertex, Integer>();
-        Map<Vertex, Vertex> predecessor = new HashMap<Vertex, Vertex>();
-        if (!vertices.contains(a) || !vertices.contains(b)) {
-            throw new IllegalArgumentException();
-        }
-        List<Vertex> path = new LinkedList<>();
-
-        //When the start and end vertex are equal
-        if (a.equals(b)) {
-            path.add(a);
-            return new Path(path, 0);
-        }
-
-        Vertex from = a;
-        for (Vertex v:vertices) {
-            unchecked.add(v);
-            cost.put(v, Integer.MAX_VALUE);
-            predecessor.put(v, v);
-        }
-
-        // update costs of the source's adjacent vertices
-        for (Vertex adjV :adjacentVertices(from)) {
-            cost.put(adjV, edgeCost(a,adjV));
-            predecessor.put(adjV, from);
-        }
-        unchecked.remove(from);
-        while (unchecked.size() > 1) {
-            // when every cost is infinity and no minimum cost is found,
-            // pick one vertex randomly
-            if (minVertex(cost, unchecked, from).equals(from)) {
-                from = unchecked.iterator().next();
-            } else { // replace starting vertex with the one having minimum cost
-                from = minVertex(cost, unchecked, from);
-            }
-
-            // update cost with lowest-cost
-            for (Vertex v :adjacentVertices(from)) {
-                if (unchecked.contains(v)) {
-                    if (cost.get(v) > cost.get(from)+edgeCost(from,v)) {
-                        cost.put(v, cost.get(from)+edgeCost(from,v));
-                        predecessor.put(v, from);
-                    }
-                }
-            }
-            unchecked.remove(from);
-        }
-
-        // starting from the destination, keep track of
-        // the vertices' predecessor and reverse the order
-        Vertex vtx = b;
-        while (!vtx.equals(a)) {
-            path.add(vtx);
-            if (vtx.equals(predecessor.get(vtx))) {
-                return null; // no path is found
-            } else {
-                vtx = predecessor.get(vtx);
-            }
-        }
-        path.add(vtx);
-        Collections.reverse(path);
-        int minCost = cost.get(b);
-
-        return new Path(path, minCost);
-    }
-
-    // Given the vertices' cost, set of unknown vertices, and previous vertex
-    // that had minimum cost, it returns a vertex which are not
-    // known yet and has the minimum cost
-    private Vertex minVertex(Map<Vertex, Integer> cost, Set<Vertex> unchecked, Vertex minKey) {
-        int min = Integer.MAX_VALUE;
-        for (Vertex target: unchecked) {
-            if (cost.get(target) < min) {
-                min = cost.get(target);
-                minKey = target;
-            }
-        }
-        return minKey;
-    }
-
-    /**
-     * Method uses Prim's algorithm to find min spanning tree
-     * @return Set of edges of the minimum spanning tree of the current graph
-     */
-    public Set<Edge> getMinimumSpanningTreeEdges() {
-        class UnorientedEdge implements Comparable<UnorientedEdge> {
-            private List<Vertex> vertices;
-            private int weight;
-
-            public UnorientedEdge(List<Vertex> vertices, int weight) {
-                this.vertices = vertices;
-                this.weight = weight;
-            }
-
-            public boolean isConnectedTo(Vertex vertex) {
-                return vertices.contains(vertex);
-            }
-
-            public Vertex getFirstVertex() {
-                return vertices.get(0);
-            }
-
-            public Vertex getSecondVertex() {
-                return vertices.get(1);
-            }
-
-            public int getWeight() {
-                return weight;
-            }
-
-            @Override
-            public int compareTo(UnorientedEdge other) {
-                return weight - other.weight;
-            }
-        }
-
-        Set<Edge> result = new HashSet<>();
-        List<UnorientedEdge> unorientedEdges = new ArrayList<UnorientedEdge>();
-        for (Edge e : edges) {
-            List<Vertex> vertices = new ArrayList<>();
-            vertices.add(e.getSource());
-            vertices.add(e.getDestination());
-            unorientedEdges.add(new UnorientedEdge(vertices, e.getWeight()));
-        }
-
-        List<Vertex> notConnected = new ArrayList<>(vertices);
-        List<Vertex> connected = new ArrayList<>();
-        if (!notConnected.isEmpty()) {
-            Vertex start = notConnected.remove(0);
-            connected.add(start);
-        }
-
-        while (!notConnected.isEmpty()) {
-            PriorityQueue<UnorientedEdge> connectedEdges = new PriorityQueue<>();
-            //finding edges that connected to vertices of connected list
-            for (UnorientedEdge edge : unorientedEdges) {
-                for (Vertex connectedVertex : connected) {
-                    if (edge.isConnectedTo(connectedVertex)) {
-                        connectedEdges.offer(edge);
-                    }
-                }
-            }
-
-            //adding "cheapest" edge (which doesn't create a circle) to the result list
-            do {
-                List<Vertex> notConnectedPrev = notConnected;
-                //getting "cheapest" edge
-                UnorientedEdge edge = connectedEdges.poll();
-                Vertex first = edge.getFirstVertex();
-                Vertex second = edge.getSecondVertex();
-
-                //checking for circles
-                if (!(connected.contains(first) && connected.contains(second))) {
-                    result.add(new Edge(first, second, edge.getWeight()));
-
-                    //removing vertex from notConnected and adding to connected
-                    if (connected.contains(first)) {
-                        connected.add(second);
-                        notConnected.remove(second);
-                    } else {
-                        connected.add(first);
-                        notConnected.remove(first);
-                    }
-                    break;
-                }
-				if (notConnected.equals(notConnectedPrev)) {
-					notConnected = new ArrayList<>();
-				}
-            } while (!connectedEdges.isEmpty());
-
-        }
-        
-        return result;
-    }
-
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        for (Edge e : edges) {
-            sb.append(e.getSource() + "\n");
-            sb.append(e.getDestination() + "\n");
-            sb.append(e.getWeight() + "\n");
-        }
-        return sb.toString();
-    }
-}
+// A MyGraph class is used to get a set of vertices and edges,
+// and find the adjacent vertices to a vertex and the cost from one
+// edge to another. It also computes the shortest path (with minimum cost)
+// from one vertex to another vertex in the graph as well as
+// the minimum spanning tree of the graph. Edges can be added, repriced
+// and removed after construction; cached shortest-path trees are repaired
+// rather than recomputed when that happens.
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A representation of a graph.
+ * Assumes that we do not have negative cost edges in the graph.
+ * One MyGraph can answer queries from many threads at once. The vertices
+ * never change; edge updates publish a new version of the adjacency
+ * arrays, and each query runs entirely on the version it started with.
+ */
+public class MyGraph implements Graph {
+
+    // a graph keeps an adjacency matrix only when at least 1/DENSE_FACTOR
+    // of all vertex pairs are connected
+    private static final int DENSE_FACTOR = 4;
+
+    // number of landmarks used by the goal-directed search
+    private static final int LANDMARKS = 8;
+
+    // memory budget of the path tree cache unless set with setPathCache
+    private static final long DEFAULT_CACHE_BYTES = 64L << 20;
+
+    private SymbolTable symbols; // label to index, and the shared vertices
+    private List<Vertex> vertices; // read-only, vertices.get(i) has index i
+    private volatile Version current; // edges of the graph as of the last update
+    private volatile PathTreeCache treeCache; // cached single-source trees, null until needed
+    private final LongAdder[] queryCounts = newCounters(); // queries per strategy
+    private final LongAdder[] settledCounts = newCounters(); // settled vertices per strategy
+    private final GraphMetrics metrics = new GraphMetrics(); // off until enabled
+
+    /**
+     * Pre: Throws an IllegalArgumentException if vertices are not found in the graph,
+     if weight is negative, or if the same directed edges have different weight.
+     * Post:Creates a MyGraph object with the given collection of vertices
+     * 		and the given collection of edges.
+     * @param v a collection of the vertices in this graph
+     * @param e a collection of the edges in this graph
+     */
+
+    public MyGraph(Collection<Vertex> v, Collection<Edge> e) {
+        // Vertices are numbered in order of first appearance; repeats
+        // map to the same index
+        symbols = new SymbolTable();
+        for (Vertex target:v) {
+            symbols.intern(target.getLabel());
+        }
+        vertices = symbols.vertices();
+
+        // Numbers the edges by vertex index for the adjacency build
+        int m = e.size();
+        int[] from = new int[m];
+        int[] to = new int[m];
+        int[] w = new int[m];
+        int k = 0;
+        for (Edge targetE: e) {
+            from[k] = indexOf(targetE.getSource());
+            to[k] = indexOf(targetE.getDestination());
+            w[k] = targetE.getWeight();
+            if (from[k] < 0 || to[k] < 0 || w[k] < 0) {
+                throw new IllegalArgumentException();
+            }
+            k++;
+        }
+        // identical edges collapse into one, as they would in a set
+        useAdjacency(CSRGraph.fromEdges(vertices.size(), from, to, w, k).withoutRepeatedEdges(), null);
+    }
+
+    /**
+     * Pre: Throws an IllegalArgumentException if an edge refers to a vertex
+     index outside labels, if weight is negative, or if the same directed
+     edge appears more than once.
+     * Post:Creates a MyGraph object whose vertex i is labeled labels.get(i)
+     * 		and whose edges are given by index in parallel arrays.
+     * @param labels the distinct labels of the vertices in this graph
+     * @param from source index of each edge
+     * @param to destination index of each edge
+     * @param w weight of each edge
+     * @param m number of edges used from the arrays
+     */
+    public MyGraph(List<String> labels, int[] from, int[] to, int[] w, int m) {
+        this(labels, from, to, w, null, m);
+    }
+
+    /**
+     * Pre: Throws an IllegalArgumentException if an edge refers to a vertex
+     index outside labels, if weight or distance is negative, or if the
+     same directed edge appears more than once.
+     * Post:Creates a MyGraph object whose vertex i is labeled labels.get(i)
+     * 		and whose edges, with their distances, are given by index in
+     * 		parallel arrays.
+     * @param labels the distinct labels of the vertices in this graph
+     * @param from source index of each edge
+     * @param to destination index of each edge
+     * @param w weight of each edge
+     * @param miles distance of each edge, or null if unknown
+     * @param m number of edges used from the arrays
+     */
+    public MyGraph(List<String> labels, int[] from, int[] to, int[] w, int[] miles, int m) {
+        setLabels(labels);
+        for (int i=0; i<m; i++) {
+            if (from[i] < 0 || from[i] >= vertices.size() || to[i] < 0 || to[i] >= vertices.size()
+                    || w[i] < 0 || (miles != null && miles[i] < 0)) {
+                throw new IllegalArgumentException();
+            }
+        }
+        buildAdjacency(from, to, w, miles, m);
+    }
+
+    /**
+     * Pre: Throws an IllegalArgumentException if adjacency does not have one
+     row per label, if a row is not strictly sorted by destination, or if
+     a weight is negative.
+     * Post:Creates a MyGraph object whose vertex i is labeled labels.get(i)
+     * 		and which uses the given CSR arrays without copying them.
+     * @param labels the distinct labels of the vertices in this graph
+     * @param adjacency the edges of this graph in CSR form
+     */
+    public MyGraph(List<String> labels, CSRGraph adjacency) {
+        this(labels, adjacency, null);
+    }
+
+    /**
+     * Pre: Throws an IllegalArgumentException if adjacency does not have one
+     row per label, if a row is not strictly sorted by destination, if a
+     weight is negative, or if miles is not one nonnegative distance per edge.
+     * Post:Creates a MyGraph object whose vertex i is labeled labels.get(i)
+     * 		and which uses the given CSR arrays without copying them.
+     * @param labels the distinct labels of the vertices in this graph
+     * @param adjacency the edges of this graph in CSR form
+     * @param miles distance of each edge, parallel to adjacency.targets,
+     *   or null if unknown
+     */
+    public MyGraph(List<String> labels, CSRGraph adjacency, int[] miles) {
+        setLabels(labels);
+        int n = vertices.size();
+        if (adjacency.vertexCount() != n || adjacency.offsets[0] != 0) {
+            throw new IllegalArgumentException();
+        }
+        for (int row=0; row<n; row++) {
+            if (adjacency.offsets[row] > adjacency.offsets[row+1]) {
+                throw new IllegalArgumentException();
+            }
+        }
+        for (int i=0; i<adjacency.edgeCount(); i++) {
+            if (adjacency.targets[i] < 0 || adjacency.targets[i] >= n || adjacency.weights[i] < 0) {
+                throw new IllegalArgumentException();
+            }
+        }
+        if (miles != null) {
+            if (miles.length != adjacency.edgeCount()) {
+                throw new IllegalArgumentException();
+            }
+            for (int d : miles) {
+                if (d < 0) {
+                    throw new IllegalArgumentException();
+                }
+            }
+        }
+        useAdjacency(adjacency, miles);
+    }
+
+    // Returns one zeroed counter per search strategy
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[SearchStrategy.values().length];
+        for (int i=0; i<counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    // Creates the vertices from distinct labels, numbered in list order
+    private void setLabels(List<String> labels) {
+        symbols = new SymbolTable();
+        for (String label:labels) {
+            if (symbols.intern(label) != symbols.size() - 1) {
+                throw new IllegalArgumentException(); // repeated label
+            }
+        }
+        vertices = symbols.vertices();
+    }
+
+    // Builds the compressed-sparse-row arrays, whose rows are sorted
+    // by destination, from index-based edges
+    private void buildAdjacency(int[] from, int[] to, int[] w, int[] distances, int m) {
+        int n = vertices.size();
+        int[] csrMiles = null;
+        if (distances != null) {
+            // the counting sort is stable, so sorting the same edges with
+            // the distances as weights puts them in the same order
+            csrMiles = CSRGraph.fromEdges(n, from, to, distances, m).weights;
+        }
+        useAdjacency(CSRGraph.fromEdges(n, from, to, w, m), csrMiles);
+    }
+
+    // Adopts the CSR arrays and edge distances, rejects repeated directed
+    // edges, and adds an adjacency matrix for dense graphs
+    private void useAdjacency(CSRGraph adjacency, int[] distances) {
+        int n = vertices.size();
+        for (int row=0; row<n; row++) {
+            for (int i=adjacency.offsets[row]+1; i<adjacency.offsets[row+1]; i++) {
+                if (adjacency.targets[i] <= adjacency.targets[i-1]) {
+                    throw new IllegalArgumentException();
+                }
+            }
+        }
+        int[] csrMiles = distances != null ? distances : new int[adjacency.edgeCount()];
+        current = new Version(0, adjacency, csrMiles, denseMatrix(adjacency, null, null, 0));
+    }
+
+    // Only dense graphs also get an adjacency matrix; sparse ones keep
+    // O(V+E) memory and answer edgeCost by binary search on the rows.
+    // Given the matrix of the previous version and the rows that changed
+    // since (in increasing order), only those rows are copied.
+    private static int[][] denseMatrix(CSRGraph csr, int[][] previous, int[] changedRows, int k) {
+        int n = csr.vertexCount();
+        if ((long) n * n > DENSE_FACTOR * (long) csr.edgeCount()) {
+            return null;
+        }
+        int[][] adjMat;
+        if (previous == null) {
+            adjMat = new int[n][];
+            changedRows = null;
+        } else {
+            adjMat = previous.clone(); // unchanged rows are shared
+        }
+        for (int c=0; c<(changedRows == null ? n : k); c++) {
+            int i = changedRows == null ? c : changedRows[c];
+            if (c > 0 && changedRows != null && i == changedRows[c-1]) {
+                continue; // row already rebuilt
+            }
+            int[] row = new int[n];
+            Arrays.fill(row, -1);
+            for (int j=csr.offsets[i]; j<csr.offsets[i+1]; j++) {
+                row[csr.targets[j]] = csr.weights[j];
+            }
+            adjMat[i] = row;
+        }
+        return adjMat;
+    }
+
+
+    // Returns the CSR arrays shared by the searches
+    CSRGraph adjacency() {
+        return current.csr;
+    }
+
+    // Returns the distance of each CSR edge, parallel to adjacency().targets
+    int[] distances() {
+        return current.miles;
+    }
+
+    // Returns the vertex with index i
+    Vertex vertexAt(int i) {
+        return vertices.get(i);
+    }
+
+    // Returns the index of vertex v, or -1 if v is not in this graph.
+    // A vertex obtained from this graph is found by its id without hashing.
+    int indexOf(Vertex v) {
+        if (v == null) {
+            return -1;
+        }
+        int id = v.getId();
+        if (id >= 0 && id < vertices.size() && vertices.get(id) == v) {
+            return id;
+        }
+        return symbols.find(v.getLabel());
+    }
+
+    /**
+     * Returns the vertex of this graph with the given label
+     * @param label an airport code
+     * @return the shared vertex with that label, or null if there is none
+     */
+    public Vertex vertex(String label) {
+        int id = symbols.find(label);
+        return id < 0 ? null : vertices.get(id);
+    }
+
+    /**
+     * Return the collection of vertices of this graph. The collection is a
+     * read-only view; its vertices are shared, not copied.
+     * @return the vertices as a collection (which is anything iterable)
+     */
+    public Collection<Vertex> vertices() {
+        return vertices;
+    }
+
+    /**
+     * Return the collection of edges of this graph. The collection is a
+     * read-only view; its edges are shared, not copied.
+     * @return the edges as a collection (which is anything iterable)
+     */
+    public Collection<Edge> edges() {
+        return Collections.unmodifiableSet(current.edgeSet(vertices));
+    }
+
+    /**
+     * Return a collection of vertices adjacent to a given vertex v.
+     *   i.e., the set of all vertices w where edges v -> w exist in the graph.
+     * Return an empty collection if there are no adjacent vertices.
+     * @param v one of the vertices in the graph
+     * @return an iterable collection of vertices adjacent to v in the graph
+     * @throws IllegalArgumentException if v does not exist.
+     */
+    public Collection<Vertex> adjacentVertices(Vertex v) {
+        int idx = indexOf(v);
+        if (idx < 0) {
+            throw new IllegalArgumentException();
+        }
+        GraphMetrics.Recorder rec = metrics.active();
+        long started = rec == null ? 0 : System.nanoTime();
+        CSRGraph csr = current.csr;
+        int start = csr.offsets[idx];
+        int end = csr.offsets[idx+1];
+        List<Vertex> adjacent = new ArrayList<>(end - start);
+        for (int i=start; i<end; i++) {
+            adjacent.add(vertices.get(csr.targets[i])); //adjacent vertex
+        }
+        if (rec != null) {
+            rec.record(GraphMetrics.Operation.ADJACENT_VERTICES, System.nanoTime() - started);
+        }
+        return adjacent;
+    }
+
+    /**
+     * Test whether vertex b is adjacent to vertex a (i.e. a -> b) in a directed graph.
+     * Assumes that we do not have negative cost edges in the graph.
+     * @param a one vertex
+     * @param b another vertex
+     * @return cost of edge if there is a directed edge from a to b in the graph,
+     * return -1 otherwise.
+     * @throws IllegalArgumentException if a or b do not exist.
+     */
+    public int edgeCost(Vertex a, Vertex b) {
+        int sourceInt = indexOf(a);
+        int destinInt = indexOf(b);
+        if (sourceInt < 0 || destinInt < 0) {
+            throw new IllegalArgumentException();
+        }
+        GraphMetrics.Recorder rec = metrics.active();
+        long started = rec == null ? 0 : System.nanoTime();
+        Version ver = current;
+        int cost = ver.adjMat != null ? ver.adjMat[sourceInt][destinInt]
+                : ver.csr.edgeCost(sourceInt, destinInt);
+        if (rec != null) {
+            rec.record(GraphMetrics.Operation.EDGE_COST, System.nanoTime() - started);
+        }
+        return cost;
+    }
+
+    /**
+     * Adds the edge a -> b.
+     * @param a the source vertex
+     * @param b the destination vertex
+     * @param cost the weight of the new edge
+     * @throws IllegalArgumentException if a or b does not exist, if cost is
+     *   negative, or if the edge a -> b already exists.
+     */
+    public synchronized void insertEdge(Vertex a, Vertex b, int cost) {
+        if (edgeCost(a, b) != -1) {
+            throw new IllegalArgumentException();
+        }
+        updateEdges(Collections.singletonList(new Edge(a, b, cost)), Collections.emptyList());
+    }
+
+    /**
+     * Changes the cost of the edge a -> b.
+     * @param a the source vertex
+     * @param b the destination vertex
+     * @param cost the new weight of the edge
+     * @throws IllegalArgumentException if a or b does not exist, if cost is
+     *   negative, or if there is no edge a -> b.
+     */
+    public synchronized void repriceEdge(Vertex a, Vertex b, int cost) {
+        if (edgeCost(a, b) == -1) {
+            throw new IllegalArgumentException();
+        }
+        updateEdges(Collections.singletonList(new Edge(a, b, cost)), Collections.emptyList());
+    }
+
+    /**
+     * Removes the edge a -> b.
+     * @param a the source vertex
+     * @param b the destination vertex
+     * @throws IllegalArgumentException if a or b does not exist, or if there
+     *   is no edge a -> b.
+     */
+    public synchronized void removeEdge(Vertex a, Vertex b) {
+        if (edgeCost(a, b) == -1) {
+            throw new IllegalArgumentException();
+        }
+        updateEdges(Collections.emptyList(), Collections.singletonList(new Edge(a, b, 0)));
+    }
+
+    /**
+     * Applies a batch of edge changes at once, e.g. a weekly fare update.
+     * Every edge in changed is added, or repriced if its endpoints are
+     * already connected; every edge in removed (whatever its weight) is
+     * deleted if present. If both name the same pair, changed wins, and
+     * within one collection the last edge for a pair wins.
+     * The new edges are published as one new version: queries already
+     * running finish on the old one. Cached shortest-path trees are then
+     * repaired, reprocessing only the vertices whose paths changed.
+     * @param changed edges to add or reprice
+     * @param removed edges to remove
+     * @throws IllegalArgumentException if an edge has an endpoint that does
+     *   not exist, or a changed edge has a negative weight; nothing is
+     *   changed in that case.
+     */
+    public synchronized void updateEdges(Collection<Edge> changed, Collection<Edge> removed) {
+        int n = vertices.size();
+        int k = changed.size() + removed.size();
+        int[] from = new int[k];
+        int[] to = new int[k];
+        int[] cost = new int[k];
+        int c = 0;
+        for (Edge e : removed) {
+            from[c] = indexOf(e.getSource());
+            to[c] = indexOf(e.getDestination());
+            cost[c++] = -1;
+        }
+        for (Edge e : changed) {
+            from[c] = indexOf(e.getSource());
+            to[c] = indexOf(e.getDestination());
+            cost[c++] = e.getWeight();
+        }
+        // Sort by pair, and within a pair by position so the last one wins
+        long[] order = new long[k];
+        for (int i=0; i<k; i++) {
+            if (from[i] < 0 || to[i] < 0 || (i >= removed.size() && cost[i] < 0)) {
+                throw new IllegalArgumentException();
+            }
+            order[i] = ((long) from[i] * n + to[i]) * k + i;
+        }
+        Arrays.sort(order);
+
+        Version old = current;
+        int[] f = new int[k];
+        int[] t = new int[k];
+        int[] w = new int[k];
+        int count = 0;
+        for (int j=0; j<k; j++) {
+            if (j+1 < k && order[j+1] / k == order[j] / k) {
+                continue; // a later change to the same pair wins
+            }
+            int i = (int) (order[j] % k);
+            if (cost[i] != old.csr.edgeCost(from[i], to[i])) { // skip changes to the same state
+                f[count] = from[i];
+                t[count] = to[i];
+                w[count++] = cost[i];
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+
+        CSRGraph next = old.csr.withChanges(f, t, w, count);
+        Version ver = new Version(old.id + 1, next, old.csr.carryOver(next, old.miles),
+                denseMatrix(next, old.adjMat, f, count));
+        current = ver;
+
+        PathTreeCache cache = treeCache;
+        if (cache != null) {
+            ShortestPathRepair repairer = new ShortestPathRepair(n);
+            int changes = count;
+            cache.repair(old.id, ver.id,
+                    tree -> repairer.repair(tree, next, ver::reverseAdjacency, f, t, w, changes));
+        }
+    }
+
+    /**
+     * Returns the shortest path from a to b in the graph, or null if there is
+     * no such path.  Assumes all edge weights are nonnegative.
+     * Uses Dijkstra's algorithm with an indexed binary heap over the
+     * compressed-sparse-row arrays, and stops as soon as b is settled.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @return a Path where the vertices indicate the path from a to b in order
+     *   and contains a (first) and b (last) and the cost is the cost of
+     *   the path. Returns null if b is not reachable from a.
+     * @throws IllegalArgumentException if a or b does not exist.
+     */
+    public Path shortestPath(Vertex a, Vertex b) {
+        return shortestPath(a, b, SearchStrategy.DIJKSTRA);
+    }
+
+    /**
+     * Returns the shortest path from a to b in the graph using the given
+     * search algorithm, or null if there is no such path. Every strategy
+     * finds a path of the same (minimum) cost. The bidirectional and
+     * landmark strategies build the reverse edges, and the landmark
+     * tables, the first time they are used; the contraction hierarchy
+     * strategy contracts the graph unless a hierarchy was loaded with
+     * useContractionHierarchy.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @param strategy the search algorithm to use
+     * @return a Path as returned by shortestPath(a, b)
+     * @throws IllegalArgumentException if a or b does not exist.
+     */
+    public Path shortestPath(Vertex a, Vertex b, SearchStrategy strategy) {
+        int source = indexOf(a);
+        int target = indexOf(b);
+        if (source < 0 || target < 0) {
+            throw new IllegalArgumentException();
+        }
+        GraphMetrics.Recorder rec = metrics.active();
+        long started = rec == null ? 0 : System.nanoTime();
+        Version ver = current;
+        if (!ver.reachability().mayReach(source, target)) { // no path, skip the search
+            queryCounts[strategy.ordinal()].increment();
+            if (rec != null) {
+                rec.search(System.nanoTime() - started, 0, 0, 0);
+            }
+            return null;
+        }
+        int cost;
+        int settled;
+        int relaxed;
+        int heapOps;
+        Path result;
+        switch (strategy) {
+            case BIDIRECTIONAL: {
+                ScratchPool<BidirectionalSearch> pool = ver.bidirectionalSearches();
+                BidirectionalSearch search = pool.borrow();
+                try {
+                    cost = search.run(source, target);
+                    settled = search.settledCount();
+                    relaxed = search.relaxedCount();
+                    heapOps = search.heapOperationCount();
+                    result = cost == DijkstraSearch.INFINITY ? null : meetingPath(search, source, target, cost);
+                } finally {
+                    pool.release(search);
+                }
+                break;
+            }
+            case LANDMARK: {
+                ScratchPool<AStarSearch> pool = ver.landmarkSearches();
+                AStarSearch search = pool.borrow();
+                try {
+                    cost = search.run(source, target);
+                    settled = search.settledCount();
+                    relaxed = search.relaxedCount();
+                    heapOps = search.heapOperationCount();
+                    result = cost == DijkstraSearch.INFINITY ? null : buildPath(target, cost, search::pred);
+                } finally {
+                    pool.release(search);
+                }
+                break;
+            }
+            case CONTRACTION_HIERARCHY: {
+                ScratchPool<HierarchySearch> pool = ver.hierarchySearches();
+                HierarchySearch search = pool.borrow();
+                try {
+                    cost = search.run(source, target);
+                    settled = search.settledCount();
+                    relaxed = search.relaxedCount();
+                    heapOps = search.heapOperationCount();
+                    result = cost == DijkstraSearch.INFINITY ? null : pathOf(search.path(), cost);
+                } finally {
+                    pool.release(search);
+                }
+                break;
+            }
+            default: {
+                DijkstraSearch search = ver.searches.borrow();
+                try {
+                    cost = search.run(source, target);
+                    settled = search.settledCount();
+                    relaxed = search.relaxedCount();
+                    heapOps = search.heapOperationCount();
+                    result = cost == DijkstraSearch.INFINITY ? null : pathTo(search, target);
+                } finally {
+                    ver.searches.release(search);
+                }
+                break;
+            }
+        }
+        queryCounts[strategy.ordinal()].increment();
+        settledCounts[strategy.ordinal()].add(settled);
+        if (rec != null) {
+            rec.search(System.nanoTime() - started, settled, relaxed, heapOps);
+        }
+        return result; // null if no path is found
+    }
+
+    /**
+     * Returns the cheapest path from a to b that changes planes at most
+     * maxStops times, or null if there is no such path. Uses Bellman-Ford
+     * limited to maxStops + 1 rounds over the compressed-sparse-row
+     * arrays, with scratch arrays that are reused across queries.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @param maxStops the largest number of airports between a and b
+     * @return a Path as returned by shortestPath(a, b) with at most
+     *   maxStops + 1 flights, or null if b cannot be reached with so few
+     * @throws IllegalArgumentException if a or b does not exist, or if
+     *   maxStops is negative.
+     */
+    public Path shortestPath(Vertex a, Vertex b, int maxStops) {
+        int source = indexOf(a);
+        int target = indexOf(b);
+        if (source < 0 || target < 0 || maxStops < 0) {
+            throw new IllegalArgumentException();
+        }
+        GraphMetrics.Recorder rec = metrics.active();
+        long started = rec == null ? 0 : System.nanoTime();
+        Version ver = current;
+        if (!ver.reachability().mayReach(source, target)) { // no path, skip the search
+            if (rec != null) {
+                rec.search(System.nanoTime() - started, 0, 0, 0);
+            }
+            return null;
+        }
+        ScratchPool<HopSearch> pool = ver.hopSearches();
+        HopSearch search = pool.borrow();
+        Path result;
+        try {
+            int cost = search.run(source, target, maxStops + 1);
+            result = cost == DijkstraSearch.INFINITY ? null : pathOf(search.path(target), cost);
+            if (rec != null) {
+                rec.search(System.nanoTime() - started, search.scannedCount(), search.relaxedCount(), 0);
+            }
+        } finally {
+            pool.release(search);
+        }
+        return result; // null if no path is found
+    }
+
+    /**
+     * Returns the groups of airports that can all reach each other, that
+     * is the strongly connected components with more than one airport.
+     * The index behind this is built on first use after every update.
+     * @return the groups, largest first, each in index order
+     */
+    public List<List<Vertex>> airportClusters() {
+        ReachabilityIndex index = current.reachability();
+        List<List<Vertex>> result = new ArrayList<>();
+        for (int c : index.clusters()) {
+            List<Vertex> cluster = new ArrayList<>();
+            for (int v : index.members(c)) {
+                cluster.add(vertices.get(v));
+            }
+            result.add(cluster);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the airports without any route in or out
+     * @return the isolated airports, in index order
+     */
+    public List<Vertex> isolatedAirports() {
+        List<Vertex> result = new ArrayList<>();
+        for (int v : current.reachability().isolated()) {
+            result.add(vertices.get(v));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of this graph with its vertices renumbered for memory
+     * locality, so that searches scan rows and scratch arrays that lie
+     * close together. The copy has its own vertices; Vertex objects of
+     * this graph are still found in it by label.
+     * @param order the numbering to use
+     * @return the renumbered graph, with the same airports, routes, fares
+     *   and miles
+     */
+    public MyGraph reordered(VertexOrder order) {
+        long started = System.nanoTime();
+        Version ver = current;
+        int[] newId = GraphLayout.order(ver.csr, order);
+        String[] labels = new String[vertices.size()];
+        for (int v=0; v<labels.length; v++) {
+            labels[newId[v]] = vertices.get(v).getLabel();
+        }
+        MyGraph graph = new MyGraph(Arrays.asList(labels), GraphLayout.permute(ver.csr, newId),
+                GraphLayout.permuteEdgeValues(ver.csr, newId, ver.miles));
+        graph.metrics.recordBuild(GraphMetrics.Phase.VERTEX_REORDERING, System.nanoTime() - started);
+        return graph;
+    }
+
+    /**
+     * Return the instrumentation of this graph. Queries are only measured
+     * after metrics().setEnabled(true).
+     * @return the metrics of this graph
+     */
+    public GraphMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the number of queries answered with the given strategy
+     * @param strategy a search algorithm
+     * @return the number of shortestPath calls that used it
+     */
+    public long queryCount(SearchStrategy strategy) {
+        return queryCounts[strategy.ordinal()].sum();
+    }
+
+    /**
+     * Returns the total number of vertices settled by queries answered with
+     * the given strategy
+     * @param strategy a search algorithm
+     * @return the number of vertices removed from its heaps over all queries
+     */
+    public long settledCount(SearchStrategy strategy) {
+        return settledCounts[strategy.ordinal()].sum();
+    }
+
+    /**
+     * Returns every Pareto-optimal route from a to b: the routes that no
+     * other route beats or ties on cost, number of flights and miles all
+     * at once. Same as paretoPaths(a, b, vertices().size() - 1).
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @return the routes, cheapest first; empty if b is not reachable from a
+     * @throws IllegalArgumentException if a or b does not exist.
+     */
+    public List<ParetoPath> paretoPaths(Vertex a, Vertex b) {
+        return paretoPaths(a, b, Math.max(0, vertices.size() - 1));
+    }
+
+    /**
+     * Returns every Pareto-optimal route from a to b with at most maxHops
+     * flights, trading cost against the number of flights and miles flown.
+     * Routes that tie on all three criteria are reported once.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @param maxHops the largest number of flights on a route
+     * @return the routes, cheapest first (so the last one has the fewest
+     *   flights); empty if there is no route within maxHops
+     * @throws IllegalArgumentException if a or b does not exist, or if
+     *   maxHops is negative.
+     */
+    public List<ParetoPath> paretoPaths(Vertex a, Vertex b, int maxHops) {
+        int source = indexOf(a);
+        int target = indexOf(b);
+        if (source < 0 || target < 0 || maxHops < 0) {
+            throw new IllegalArgumentException();
+        }
+        Version ver = current;
+        if (!ver.reachability().mayReach(source, target)) {
+            return new ArrayList<>();
+        }
+        ScratchPool<ParetoSearch> pool = ver.paretoSearches();
+        ParetoSearch search = pool.borrow();
+        try {
+            int count = search.run(source, target, maxHops);
+            List<ParetoPath> result = new ArrayList<>(count);
+            for (int i=0; i<count; i++) {
+                int label = search.route(i);
+                LinkedList<Vertex> path = new LinkedList<>();
+                for (int l = label; l != -1; l = search.parent(l)) {
+                    path.addFirst(vertices.get(search.vertex(l)));
+                }
+                result.add(new ParetoPath(path, search.cost(label), search.hops(label), search.miles(label)));
+            }
+            result.sort(Comparator.comparingInt((ParetoPath p) -> p.cost)
+                    .thenComparingInt(p -> p.hops).thenComparingInt(p -> p.miles));
+            return result;
+        } finally {
+            pool.release(search);
+        }
+    }
+
+    /**
+     * Returns the k cheapest loopless paths from a to b, e.g. for offering
+     * alternatives to the cheapest itinerary. Uses Yen's algorithm; the
+     * spur searches of each round run in parallel on large graphs.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @param k the number of paths wanted
+     * @return up to k Paths as returned by shortestPath, cheapest first;
+     *   empty if b is not reachable from a
+     * @throws IllegalArgumentException if a or b does not exist, or if k is
+     *   less than 1.
+     */
+    public List<Path> kShortestPaths(Vertex a, Vertex b, int k) {
+        int source = indexOf(a);
+        int target = indexOf(b);
+        if (source < 0 || target < 0 || k < 1) {
+            throw new IllegalArgumentException();
+        }
+        Version ver = current;
+        if (!ver.reachability().mayReach(source, target)) {
+            return new ArrayList<>();
+        }
+        KShortestPaths finder = new KShortestPaths(ver.csr, ver.spurSearches());
+        int count = finder.run(source, target, k);
+        List<Path> result = new ArrayList<>(count);
+        for (int i=0; i<count; i++) {
+            List<Vertex> path = new ArrayList<>();
+            for (int v : finder.path(i)) {
+                path.add(vertices.get(v));
+            }
+            result.add(new Path(path, finder.cost(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cheapest cost from every origin to every destination,
+     * running one search per distinct origin that stops once all the
+     * destinations are settled. Origins are searched in parallel.
+     * @param origins the origin of each row
+     * @param destinations the destination of each column
+     * @return a flat row-major matrix whose entry i * destinations.size() + j
+     *   is the cost from origins.get(i) to destinations.get(j), or
+     *   DijkstraSearch.INFINITY if there is no path
+     * @throws IllegalArgumentException if a vertex does not exist.
+     */
+    public int[] costMatrix(List<Vertex> origins, List<Vertex> destinations) {
+        return costMatrix(origins, destinations, null);
+    }
+
+    /**
+     * Returns the cheapest cost from every origin to every destination like
+     * costMatrix(origins, destinations), and also fills in the predecessors
+     * of each origin's paths, from which matrixPath rebuilds them.
+     * @param origins the origin of each row
+     * @param destinations the destination of each column
+     * @param predecessors null, or an array of origins.size() times the
+     *   number of vertices that receives, at i * vertices().size() + v,
+     *   the index of the vertex before vertex index v on the path from
+     *   origins.get(i) (-1 if none)
+     * @return the cost matrix, as costMatrix(origins, destinations) returns
+     * @throws IllegalArgumentException if a vertex does not exist, or if
+     *   predecessors has the wrong length.
+     */
+    public int[] costMatrix(List<Vertex> origins, List<Vertex> destinations, int[] predecessors) {
+        int n = vertices.size();
+        if (predecessors != null && predecessors.length != (long) origins.size() * n) {
+            throw new IllegalArgumentException();
+        }
+        int[] from = indexesOf(origins);
+        int[] to = indexesOf(destinations);
+        int[] costs = new int[Math.multiplyExact(from.length, to.length)];
+        CostMatrix.compute(current.searches, n, from, to, costs, predecessors);
+        return costs;
+    }
+
+    /**
+     * Rebuilds one path of a cost matrix from the predecessors that
+     * costMatrix filled in.
+     * @param predecessors the predecessors filled in by costMatrix
+     * @param row the row of the path's origin
+     * @param b the destination of the path, one of the matrix columns
+     * @param cost its entry in the cost matrix
+     * @return a Path as returned by shortestPath, or null if cost is
+     *   DijkstraSearch.INFINITY
+     * @throws IllegalArgumentException if b does not exist.
+     */
+    public Path matrixPath(int[] predecessors, int row, Vertex b, int cost) {
+        int target = indexOf(b);
+        if (target < 0) {
+            throw new IllegalArgumentException();
+        }
+        if (cost == DijkstraSearch.INFINITY) {
+            return null; // no path is found
+        }
+        int base = row * vertices.size();
+        return buildPath(target, cost, v -> predecessors[base + v]);
+    }
+
+    // Returns the index of every vertex in list order
+    private int[] indexesOf(List<Vertex> list) {
+        int[] indexes = new int[list.size()];
+        for (int i=0; i<indexes.length; i++) {
+            indexes[i] = indexOf(list.get(i));
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException();
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Precomputes the cheapest cost and predecessor between every pair of
+     * vertices, running one search per origin in parallel. Does nothing if
+     * the table already exists. The table is dropped when edges change and
+     * computed again when next needed. It takes 8 bytes per pair, so it is
+     * only meant for small graphs.
+     * @throws IllegalArgumentException if the graph has more than
+     *   AllPairsTable.MAX_VERTICES (46,340) vertices
+     */
+    public void precomputeAllPairs() {
+        current.allPairs();
+    }
+
+    /**
+     * Returns the contraction hierarchy of the current edges, contracting
+     * the graph in parallel if it has none yet. The hierarchy is dropped
+     * when edges change and built again when next needed.
+     * @return the hierarchy used by SearchStrategy.CONTRACTION_HIERARCHY
+     */
+    public ContractionHierarchy contractionHierarchy() {
+        return current.hierarchy();
+    }
+
+    /**
+     * Makes the contraction hierarchy strategy use ch, such as one loaded
+     * with ContractionHierarchy.read, instead of contracting the graph.
+     * @param ch a hierarchy of this graph's current edges
+     * @throws IllegalArgumentException if ch was built from other edges
+     */
+    public void useContractionHierarchy(ContractionHierarchy ch) {
+        Version ver = current;
+        if (!ch.matches(ver.csr)) {
+            throw new IllegalArgumentException("hierarchy does not match the graph");
+        }
+        ver.useHierarchy(ch);
+    }
+
+    /**
+     * Returns the shortest path from a to b by following the precomputed
+     * predecessors of a's row back from b, without running a search. Precomputes the table first if
+     * it does not exist yet. The table takes 8 bytes per pair of vertices,
+     * so this only works for small graphs; use shortestPath on large ones.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @return a Path as returned by shortestPath, or null if b is not
+     *   reachable from a.
+     * @throws IllegalArgumentException if a or b does not exist, or if the
+     *   graph has more than AllPairsTable.MAX_VERTICES (46,340) vertices.
+     */
+    public Path lookupPath(Vertex a, Vertex b) {
+        int source = indexOf(a);
+        int target = indexOf(b);
+        if (source < 0 || target < 0) {
+            throw new IllegalArgumentException();
+        }
+        AllPairsTable allPairs = current.allPairs();
+        int cost = allPairs.cost(source, target);
+        if (cost == DijkstraSearch.INFINITY) {
+            return null; // no path is found
+        }
+        return buildPath(target, cost, v -> allPairs.pred(source, v));
+    }
+
+    /**
+     * Returns the shortest path from a to b like shortestPath, but through
+     * a cache of complete shortest-path trees keyed by origin: the first
+     * query from a computes a's whole tree, and later queries from a only
+     * walk its predecessor array. When edges change, the cached trees are
+     * repaired instead of discarded.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @return a Path as returned by shortestPath(a, b)
+     * @throws IllegalArgumentException if a or b does not exist.
+     */
+    public Path cachedPath(Vertex a, Vertex b) {
+        int source = indexOf(a);
+        int target = indexOf(b);
+        if (source < 0 || target < 0) {
+            throw new IllegalArgumentException();
+        }
+        Version ver = current;
+        ShortestPathTree tree = pathCache().get(source, ver.id, ver::computeTree);
+        if (tree.dist[target] == DijkstraSearch.INFINITY) {
+            return null; // no path is found
+        }
+        return buildPath(target, tree.dist[target], v -> tree.pred[v]);
+    }
+
+    /**
+     * Replaces the path tree cache with an empty one of the given size
+     * @param maxBytes the most memory the cached trees may use
+     * @param ttlMillis how long a cached tree stays valid, 0 for no limit
+     */
+    public void setPathCache(long maxBytes, long ttlMillis) {
+        treeCache = new PathTreeCache(maxBytes, ttlMillis);
+    }
+
+    /**
+     * Returns the cache used by cachedPath, for its metrics. The cache
+     * belongs to this graph, so a graph rebuilt from new data always
+     * starts with an empty one; updateEdges keeps it.
+     * @return the path tree cache
+     */
+    public PathTreeCache pathCache() {
+        PathTreeCache cache = treeCache;
+        if (cache == null) {
+            synchronized (this) {
+                if (treeCache == null) {
+                    treeCache = new PathTreeCache(DEFAULT_CACHE_BYTES, 0);
+                }
+                cache = treeCache;
+            }
+        }
+        return cache;
+    }
+
+    // Given a search that has settled the target, follows the predecessors
+    // back to the source and returns the vertices in path order
+    private Path pathTo(DijkstraSearch search, int target) {
+        return buildPath(target, search.dist(target), search::pred);
+    }
+
+    // Follows pred from target until -1 and returns the vertices in path
+    // order; throws IllegalStateException if the links never reach -1
+    private Path buildPath(int target, int cost, IntUnaryOperator pred) {
+        LinkedList<Vertex> path = new LinkedList<>();
+        for (int v = target; v != -1; v = pred.applyAsInt(v)) {
+            if (path.size() == vertices.size()) {
+                // a simple path has at most n vertices; the links loop
+                throw new IllegalStateException("predecessors form a cycle");
+            }
+            path.addFirst(vertices.get(v));
+        }
+        return new Path(path, cost);
+    }
+
+    // Joins the forward half of a bidirectional search, from the source to
+    // the meeting vertex, with its backward half on to the target
+    private Path meetingPath(BidirectionalSearch search, int source, int target, int cost) {
+        LinkedList<Vertex> path = new LinkedList<>();
+        int meet = search.meeting();
+        for (int v = meet; v != -1; v = search.forwardPred(v)) {
+            path.addFirst(vertices.get(v));
+        }
+        for (int v = search.backwardSucc(meet); v != -1; v = search.backwardSucc(v)) {
+            path.addLast(vertices.get(v));
+        }
+        return new Path(path, cost);
+    }
+
+    // Returns the path through the given vertex ids
+    private Path pathOf(int[] ids, int cost) {
+        LinkedList<Vertex> path = new LinkedList<>();
+        for (int v : ids) {
+            path.addLast(vertices.get(v));
+        }
+        return new Path(path, cost);
+    }
+
+    /**
+     * Method uses Kruskal's algorithm to find min spanning tree, treating
+     * every edge as undirected. If the graph is not connected the result
+     * is a minimum spanning forest with one tree per component.
+     * @return Set of edges of the minimum spanning tree of the current graph
+     */
+    public Set<Edge> getMinimumSpanningTreeEdges() {
+        return getMinimumSpanningTreeEdges(false);
+    }
+
+    /**
+     * Method uses Kruskal's algorithm to find min spanning tree, treating
+     * every edge as undirected. If the graph is not connected the result
+     * is a minimum spanning forest with one tree per component.
+     * @param parallel whether to sort the edges in parallel
+     * @return Set of edges of the minimum spanning tree of the current graph
+     */
+    public Set<Edge> getMinimumSpanningTreeEdges(boolean parallel) {
+        GraphMetrics.Recorder rec = metrics.active();
+        long started = rec == null ? 0 : System.nanoTime();
+        CSRGraph csr = current.csr;
+        Set<Edge> result = edgesAt(csr, KruskalMST.spanningForest(csr, parallel));
+        if (rec != null) {
+            rec.record(GraphMetrics.Operation.MINIMUM_SPANNING_TREE, System.nanoTime() - started);
+        }
+        return result;
+    }
+
+    /**
+     * Method uses a parallel Boruvka's algorithm to find min spanning tree,
+     * treating every edge as undirected. Each round finds the cheapest
+     * edge leaving every component on all threads at once, so it pays off
+     * on graphs with hundreds of thousands of edges. If the graph is not
+     * connected the result is a minimum spanning forest with one tree per
+     * component.
+     * @param threads the number of threads to use
+     * @return Set of edges of the minimum spanning tree of the current graph
+     * @throws IllegalArgumentException if threads is less than 1
+     */
+    public Set<Edge> getMinimumSpanningTreeEdges(int threads) {
+        GraphMetrics.Recorder rec = metrics.active();
+        long started = rec == null ? 0 : System.nanoTime();
+        CSRGraph csr = current.csr;
+        Set<Edge> result = edgesAt(csr, BoruvkaMST.spanningForest(csr, threads));
+        if (rec != null) {
+            rec.record(GraphMetrics.Operation.MINIMUM_SPANNING_TREE, System.nanoTime() - started);
+        }
+        return result;
+    }
+
+    // Creates the Edge objects of the given CSR edge indices
+    private Set<Edge> edgesAt(CSRGraph csr, int[] chosen) {
+        int[] sources = csr.sources();
+        Set<Edge> result = new HashSet<>();
+        for (int e : chosen) {
+            result.add(new Edge(vertices.get(sources[e]), vertices.get(csr.targets[e]), csr.weights[e]));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Edge e : current.edgeSet(vertices)) {
+            sb.append(e.getSource() + "\n");
+            sb.append(e.getDestination() + "\n");
+            sb.append(e.getWeight() + "\n");
+        }
+        return sb.toString();
+    }
+
+    // The adjacency arrays of one version of the graph, and the search
+    // pools and tables derived from them, which are built on first use.
+    // A published version never changes; updateEdges creates the next one.
+    private static final class Version {
+        final long id; // 0 for the graph as constructed, then 1, 2, ...
+        final CSRGraph csr; // compact adjacency used by the searches
+        final int[] miles; // distance of each CSR edge, 0 where unknown
+        final int[][] adjMat; // matrix to contain cost between vertices, null if sparse
+        final ScratchPool<DijkstraSearch> searches; // reusable search scratch
+        private Set<Edge> edges; // built from the adjacency arrays when first needed
+        private CSRGraph reverseCsr; // reverse edges, null until needed
+        private volatile AllPairsTable allPairs; // precomputed paths, null until needed
+        private volatile ScratchPool<BidirectionalSearch> bidirectional; // null until needed
+        private volatile ScratchPool<AStarSearch> goalDirected; // null until needed
+        private volatile ScratchPool<ParetoSearch> multiCriteria; // null until needed
+        private volatile ScratchPool<SpurSearch> spur; // null until needed
+        private volatile ScratchPool<HopSearch> hopLimited; // null until needed
+        private volatile ReachabilityIndex reachable; // null until needed
+        private volatile ContractionHierarchy hierarchy; // null until needed
+        private volatile ScratchPool<HierarchySearch> upward; // null until needed
+
+        Version(long id, CSRGraph csr, int[] miles, int[][] adjMat) {
+            this.id = id;
+            this.csr = csr;
+            this.miles = miles;
+            this.adjMat = adjMat;
+            searches = new ScratchPool<>(() -> new DijkstraSearch(csr));
+        }
+
+        // Returns the edge set, creating the Edge objects from the adjacency
+        // arrays the first time it is needed
+        synchronized Set<Edge> edgeSet(List<Vertex> vertices) {
+            if (edges == null) {
+                Set<Edge> built = new HashSet<Edge>();
+                for (int i=0; i<vertices.size(); i++) {
+                    for (int j=csr.offsets[i]; j<csr.offsets[i+1]; j++) {
+                        built.add(new Edge(vertices.get(i), vertices.get(csr.targets[j]), csr.weights[j]));
+                    }
+                }
+                edges = built;
+            }
+            return edges;
+        }
+
+        // Returns the reverse CSR arrays, building them on first use
+        synchronized CSRGraph reverseAdjacency() {
+            if (reverseCsr == null) {
+                reverseCsr = csr.reverse();
+            }
+            return reverseCsr;
+        }
+
+        // Returns the all-pairs table, computing it on first use
+        AllPairsTable allPairs() {
+            if (allPairs == null) {
+                synchronized (this) {
+                    if (allPairs == null) {
+                        allPairs = new AllPairsTable(csr);
+                    }
+                }
+            }
+            return allPairs;
+        }
+
+        // Returns the pool of bidirectional searches, building the reverse
+        // edges on first use
+        ScratchPool<BidirectionalSearch> bidirectionalSearches() {
+            if (bidirectional == null) {
+                synchronized (this) {
+                    if (bidirectional == null) {
+                        CSRGraph backward = reverseAdjacency();
+                        bidirectional = new ScratchPool<>(() -> new BidirectionalSearch(csr, backward));
+                    }
+                }
+            }
+            return bidirectional;
+        }
+
+        // Returns the pool of landmark searches, picking the landmarks and
+        // computing their tables on first use
+        ScratchPool<AStarSearch> landmarkSearches() {
+            if (goalDirected == null) {
+                synchronized (this) {
+                    if (goalDirected == null) {
+                        Landmarks landmarks = new Landmarks(csr, reverseAdjacency(), LANDMARKS);
+                        goalDirected = new ScratchPool<>(() -> new AStarSearch(csr, landmarks));
+                    }
+                }
+            }
+            return goalDirected;
+        }
+
+        // Returns the pool of multi-criteria searches, creating it on first use
+        ScratchPool<ParetoSearch> paretoSearches() {
+            if (multiCriteria == null) {
+                synchronized (this) {
+                    if (multiCriteria == null) {
+                        multiCriteria = new ScratchPool<>(() -> new ParetoSearch(csr, miles));
+                    }
+                }
+            }
+            return multiCriteria;
+        }
+
+        // Returns the pool of blockable searches for k-shortest paths,
+        // creating it on first use
+        ScratchPool<SpurSearch> spurSearches() {
+            if (spur == null) {
+                synchronized (this) {
+                    if (spur == null) {
+                        spur = new ScratchPool<>(() -> new SpurSearch(csr));
+                    }
+                }
+            }
+            return spur;
+        }
+
+        // Returns the reachability index, building it on first use
+        ReachabilityIndex reachability() {
+            if (reachable == null) {
+                synchronized (this) {
+                    if (reachable == null) {
+                        reachable = new ReachabilityIndex(csr);
+                    }
+                }
+            }
+            return reachable;
+        }
+
+        // Returns the pool of hop-constrained searches, creating it on first use
+        ScratchPool<HopSearch> hopSearches() {
+            if (hopLimited == null) {
+                synchronized (this) {
+                    if (hopLimited == null) {
+                        hopLimited = new ScratchPool<>(() -> new HopSearch(csr));
+                    }
+                }
+            }
+            return hopLimited;
+        }
+
+        // Returns the contraction hierarchy, contracting the graph on first use
+        ContractionHierarchy hierarchy() {
+            if (hierarchy == null) {
+                synchronized (this) {
+                    if (hierarchy == null) {
+                        hierarchy = new ContractionHierarchy(csr);
+                    }
+                }
+            }
+            return hierarchy;
+        }
+
+        // Replaces the contraction hierarchy by a matching one
+        synchronized void useHierarchy(ContractionHierarchy ch) {
+            hierarchy = ch;
+            upward = null;
+        }
+
+        // Returns the pool of hierarchy searches, contracting the graph on
+        // first use
+        ScratchPool<HierarchySearch> hierarchySearches() {
+            ScratchPool<HierarchySearch> pool = upward;
+            if (pool == null) {
+                synchronized (this) {
+                    if (upward == null) {
+                        ContractionHierarchy ch = hierarchy();
+                        upward = new ScratchPool<>(() -> new HierarchySearch(ch));
+                    }
+                    pool = upward;
+                }
+            }
+            return pool;
+        }
+
+        // Runs a full search from origin and copies out its tree
+        ShortestPathTree computeTree(int origin) {
+            DijkstraSearch search = searches.borrow();
+            try {
+                search.run(origin, -1);
+                return ShortestPathTree.of(search);
+            } finally {
+                searches.release(search);
+            }
+        }
+    }
+}
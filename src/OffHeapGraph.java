@@ -0,0 +1,347 @@
+// An OffHeapGraph class keeps the CSR arrays of a graph (row offsets,
+// edge targets and edge weights) outside the Java heap, in direct or
+// memory-mapped ByteBuffers, so a route network of several gigabytes
+// neither fills the heap nor lengthens garbage collection pauses. Each
+// array is split into buffers of at most 2^28 ints (1 GiB), since a
+// ByteBuffer holds at most 2 GiB. Only the shared vertices live on the
+// heap, plus O(V) scratch arrays per search.
+//
+// The graph implements EdgeArrays, so shortestPath runs the same
+// DijkstraSearch as MyGraph and the spanning forest the same BoruvkaMST,
+// both reading the buffers through absolute gets and never creating Edge
+// objects. Boruvka's algorithm only scans the edges in storage order, so
+// unlike Kruskal's it needs no per-edge sort array on the heap. The
+// constructor checks every offset, target and weight once, so opening a
+// mapped snapshot reads the whole edge section sequentially; the pages
+// stay off the heap and the OS may drop them again until searches touch
+// them. The buffers are read-only once built, so any number of threads
+// may query concurrently.
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read-only graph whose adjacency is stored off the Java heap.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class OffHeapGraph implements Graph, EdgeArrays {
+
+    private final SymbolTable symbols; // label to index, and the shared vertices
+    private final List<Vertex> vertices; // read-only, vertices.get(i) has index i
+    private final IntSegments offsets; // row start of each vertex, n+1 entries
+    private final IntSegments targets; // destination vertex of each edge
+    private final IntSegments weights; // cost of each edge
+    private final int edgeCount;
+    private final ScratchPool<DijkstraSearch> searches;
+
+    // An int array of any length held in direct or mapped buffers
+    static final class IntSegments {
+        static final int SHIFT = 28; // 2^28 ints, 1 GiB per buffer
+        static final int MASK = (1 << SHIFT) - 1;
+
+        private final IntBuffer[] parts;
+        final long length;
+
+        private IntSegments(IntBuffer[] parts, long length) {
+            this.parts = parts;
+            this.length = length;
+        }
+
+        /**
+         * Allocates zeroed direct buffers for length ints
+         * @param length the number of ints
+         * @return the new array
+         */
+        static IntSegments allocate(long length) {
+            IntBuffer[] parts = new IntBuffer[partCount(length)];
+            for (int k = 0; k < parts.length; k++) {
+                int size = partSize(length, k);
+                parts[k] = ByteBuffer.allocateDirect(4 * size).order(ByteOrder.nativeOrder()).asIntBuffer();
+            }
+            return new IntSegments(parts, length);
+        }
+
+        /**
+         * Maps length big-endian ints of a file, starting at position,
+         * read-only
+         * @param channel the open file
+         * @param position the byte offset of the first int
+         * @param length the number of ints
+         * @return an array backed by the file
+         * @throws IOException if the file cannot be mapped
+         */
+        static IntSegments map(FileChannel channel, long position, long length) throws IOException {
+            IntBuffer[] parts = new IntBuffer[partCount(length)];
+            for (int k = 0; k < parts.length; k++) {
+                long start = position + 4L * ((long) k << SHIFT);
+                int size = partSize(length, k);
+                parts[k] = channel.map(FileChannel.MapMode.READ_ONLY, start, 4L * size).asIntBuffer();
+            }
+            return new IntSegments(parts, length);
+        }
+
+        private static int partCount(long length) {
+            return (int) ((length + MASK) >>> SHIFT);
+        }
+
+        private static int partSize(long length, int k) {
+            return (int) Math.min(1L << SHIFT, length - ((long) k << SHIFT));
+        }
+
+        int get(int i) {
+            return parts[i >>> SHIFT].get(i & MASK);
+        }
+
+        void put(int i, int value) {
+            parts[i >>> SHIFT].put(i & MASK, value);
+        }
+    }
+
+    /**
+     * Copies a graph's CSR arrays into direct buffers.
+     * Pre: the rows of adjacency are sorted by target, as CSRGraph keeps them
+     * @param labels the label of each vertex index
+     * @param adjacency the edges
+     * @throws IllegalArgumentException if the label count and the vertex
+     *   count differ, or a label repeats
+     */
+    public OffHeapGraph(List<String> labels, CSRGraph adjacency) {
+        this(labels, copy(adjacency.offsets), copy(adjacency.targets), copy(adjacency.weights));
+    }
+
+    /**
+     * Wraps CSR arrays that are already off the heap, checking that they
+     * form a valid graph, which reads every entry once; used by
+     * GraphSnapshot.map.
+     * @param labels the label of each vertex index
+     * @param offsets row starts, one more than the number of labels
+     * @param targets destination of each edge, sorted within each row
+     * @param weights cost of each edge
+     * @throws IllegalArgumentException if the arrays are inconsistent or
+     *   a weight is negative
+     */
+    OffHeapGraph(List<String> labels, IntSegments offsets, IntSegments targets, IntSegments weights) {
+        int n = labels.size();
+        if (offsets.length != n + 1L || targets.length != weights.length
+                || targets.length > Integer.MAX_VALUE || offsets.get(0) != 0 || offsets.get(n) != targets.length) {
+            throw new IllegalArgumentException();
+        }
+        for (int v = 0; v < n; v++) {
+            int start = offsets.get(v);
+            int end = offsets.get(v + 1);
+            if (end < start) {
+                throw new IllegalArgumentException();
+            }
+            for (int i = start, last = -1; i < end; i++) {
+                int t = targets.get(i);
+                if (t < last || t >= n || weights.get(i) < 0) {
+                    throw new IllegalArgumentException();
+                }
+                last = t;
+            }
+        }
+        symbols = new SymbolTable();
+        for (String label : labels) {
+            if (symbols.intern(label) != symbols.size() - 1) {
+                throw new IllegalArgumentException("repeated label " + label);
+            }
+        }
+        vertices = symbols.vertices();
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        edgeCount = (int) targets.length;
+        searches = new ScratchPool<>(() -> new DijkstraSearch(this));
+    }
+
+    // Copies an on-heap array into a new direct one
+    private static IntSegments copy(int[] array) {
+        IntSegments copy = IntSegments.allocate(array.length);
+        for (int i = 0; i < array.length; i++) {
+            copy.put(i, array[i]);
+        }
+        return copy;
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertices.size();
+    }
+
+    @Override
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public int rowStart(int v) {
+        return offsets.get(v);
+    }
+
+    @Override
+    public int target(int e) {
+        return targets.get(e);
+    }
+
+    @Override
+    public int weight(int e) {
+        return weights.get(e);
+    }
+
+    /**
+     * Return the vertex with index i
+     * @param i a vertex id
+     * @return the shared vertex
+     */
+    public Vertex vertexAt(int i) {
+        return vertices.get(i);
+    }
+
+    /**
+     * Return the index of vertex v
+     * @param v a vertex
+     * @return its id, or -1 if v is not in this graph
+     */
+    public int indexOf(Vertex v) {
+        if (v == null) {
+            return -1;
+        }
+        int id = v.getId();
+        if (id >= 0 && id < vertices.size() && vertices.get(id) == v) {
+            return id;
+        }
+        return symbols.find(v.getLabel());
+    }
+
+    /**
+     * Return the collection of vertices of this graph
+     * @return the vertices as a read-only list in index order
+     */
+    @Override
+    public Collection<Vertex> vertices() {
+        return vertices;
+    }
+
+    /**
+     * Return the collection of edges of this graph. Every call creates one
+     * Edge per edge, so this is meant for small graphs only.
+     * @return the edges as a new set
+     */
+    @Override
+    public Collection<Edge> edges() {
+        Set<Edge> edges = new HashSet<>();
+        for (int v = 0; v < vertices.size(); v++) {
+            for (int i = offsets.get(v), end = offsets.get(v + 1); i < end; i++) {
+                edges.add(new Edge(vertices.get(v), vertices.get(targets.get(i)), weights.get(i)));
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Return a collection of vertices adjacent to a given vertex v.
+     * @param v one of the vertices in the graph
+     * @return the vertices w where edges v -> w exist, in index order
+     * @throws IllegalArgumentException if v does not exist.
+     */
+    @Override
+    public Collection<Vertex> adjacentVertices(Vertex v) {
+        int idx = indexOf(v);
+        if (idx < 0) {
+            throw new IllegalArgumentException();
+        }
+        int start = offsets.get(idx);
+        int end = offsets.get(idx + 1);
+        List<Vertex> adjacent = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            adjacent.add(vertices.get(targets.get(i)));
+        }
+        return adjacent;
+    }
+
+    /**
+     * Test whether vertex b is adjacent to vertex a (i.e. a -> b), by
+     * binary search in a's row.
+     * @param a one vertex
+     * @param b another vertex
+     * @return cost of edge if there is a directed edge from a to b in the
+     *   graph, -1 otherwise.
+     * @throws IllegalArgumentException if a or b do not exist.
+     */
+    @Override
+    public int edgeCost(Vertex a, Vertex b) {
+        int from = indexOf(a);
+        int to = indexOf(b);
+        if (from < 0 || to < 0) {
+            throw new IllegalArgumentException();
+        }
+        int lo = offsets.get(from);
+        int hi = offsets.get(from + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int t = targets.get(mid);
+            if (t < to) {
+                lo = mid + 1;
+            } else if (t > to) {
+                hi = mid - 1;
+            } else {
+                return weights.get(mid);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the shortest path from a to b with Dijkstra's algorithm,
+     * reading the edges straight from the buffers.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @return a list of vertices starting with a and ending with b, with
+     *   the path cost; null if b is not reachable from a.
+     * @throws IllegalArgumentException if a or b does not exist.
+     */
+    public Path shortestPath(Vertex a, Vertex b) {
+        int source = indexOf(a);
+        int target = indexOf(b);
+        if (source < 0 || target < 0) {
+            throw new IllegalArgumentException();
+        }
+        DijkstraSearch search = searches.borrow();
+        try {
+            int cost = search.run(source, target);
+            if (cost == DijkstraSearch.INFINITY) {
+                return null; // no path is found
+            }
+            LinkedList<Vertex> path = new LinkedList<>();
+            for (int v = target; v != -1; v = search.pred(v)) {
+                path.addFirst(vertices.get(v));
+            }
+            return new Path(path, cost);
+        } finally {
+            searches.release(search);
+        }
+    }
+
+    /**
+     * Finds a minimum spanning tree with Boruvka's algorithm, treating
+     * every edge as undirected. If the graph is not connected the result
+     * is a minimum spanning forest with one tree per component.
+     * @return Set of edges of the minimum spanning tree
+     */
+    public Set<Edge> getMinimumSpanningTreeEdges() {
+        Set<Edge> result = new HashSet<>();
+        for (int e : BoruvkaMST.spanningForest(this, 1)) {
+            result.add(new Edge(vertices.get(source(e)), vertices.get(targets.get(e)), weights.get(e)));
+        }
+        return result;
+    }
+}
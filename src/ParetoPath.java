@@ -0,0 +1,17 @@
+import java.util.List;
+
+/**
+ * A Path found by a multi-criteria search, which also reports the other
+ * two criteria it was chosen on.
+ */
+public class ParetoPath extends Path {
+    // public fields like Path: a plain result holder
+    public final int hops;  // number of flights, i.e. stops + 1
+    public final int miles; // total distance flown
+
+    public ParetoPath(List<Vertex> vertices, int cost, int hops, int miles) {
+	super(vertices, cost);
+	this.hops = hops;
+	this.miles = miles;
+    }
+}
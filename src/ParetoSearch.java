@@ -0,0 +1,225 @@
+// A ParetoSearch class finds every Pareto-optimal route between two
+// vertices under three criteria at once: total cost, number of hops and
+// total miles. It works in rounds like Bellman-Ford or RAPTOR: round k
+// extends only the labels made in round k-1, so every label of round k
+// has exactly k hops. A vertex keeps a bag of (cost, miles) labels; a new
+// label is dropped if an older or equal label at that vertex, or at the
+// target, is no worse in both cost and miles, since it cannot lead to a
+// route with fewer hops either. A label beaten by another label of its
+// own round is marked dead.
+//
+// Labels are not objects: they are slots in parallel int arrays, chained
+// into per-vertex bags by index, and the arrays are reused between runs.
+// An instance is not thread-safe.
+
+import java.util.Arrays;
+
+/**
+ * Reusable multi-criteria (cost, hops, miles) search over a CSRGraph.
+ * Assumes that we do not have negative cost or distance edges.
+ */
+public class ParetoSearch {
+
+    private final CSRGraph graph;
+    private final int[] miles;   // distance of each CSR edge
+    private final int[] head;    // newest label in the bag of each vertex
+    private final int[] stamp;   // run in which head was last written
+    private int epoch;
+
+    // one slot per label
+    private int[] labelCost = new int[1024];
+    private int[] labelMiles = new int[1024];
+    private int[] labelHops = new int[1024];
+    private int[] labelVertex = new int[1024];
+    private int[] labelParent = new int[1024]; // label it extends, -1 for the source
+    private int[] labelNext = new int[1024];   // next older label in the same bag
+    private boolean[] labelDead = new boolean[1024];
+    private int labels;
+
+    private int[] frontier = new int[64]; // labels made in the last round
+    private int[] next = new int[64];     // labels made in this round
+    private int[] found = new int[16];    // live labels at the target
+    private int foundCount;
+
+    /**
+     * Creates a search with scratch space for every vertex of graph
+     * @param graph the graph to search
+     * @param miles the distance of each edge, parallel to graph.targets
+     */
+    public ParetoSearch(CSRGraph graph, int[] miles) {
+        if (miles.length != graph.edgeCount()) {
+            throw new IllegalArgumentException();
+        }
+        this.graph = graph;
+        this.miles = miles;
+        int n = graph.vertexCount();
+        head = new int[n];
+        stamp = new int[n];
+    }
+
+    /**
+     * Finds every Pareto-optimal route from source to target that uses at
+     * most maxHops edges
+     * @param source the starting vertex id
+     * @param target the destination vertex id
+     * @param maxHops the largest number of edges on a route
+     * @return the number of routes found, which may be 0
+     */
+    public int run(int source, int target, int maxHops) {
+        if (++epoch == 0) { // stamps wrapped around, start over
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        labels = 0;
+        foundCount = 0;
+
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+        frontier[0] = addLabel(source, 0, 0, 0, -1);
+        int size = 1;
+        for (int hops = 1; hops <= maxHops && size > 0; hops++) {
+            int nextSize = 0;
+            for (int f = 0; f < size; f++) {
+                int parent = frontier[f];
+                if (labelDead[parent]) {
+                    continue; // beaten later in its own round
+                }
+                int u = labelVertex[parent];
+                if (u == target) {
+                    continue; // extending past the target only adds cost
+                }
+                for (int i = offsets[u], end = offsets[u + 1]; i < end; i++) {
+                    int v = targets[i];
+                    int cost = labelCost[parent] + weights[i];
+                    int distance = labelMiles[parent] + miles[i];
+                    if (dominated(target, cost, distance) || dominated(v, cost, distance)) {
+                        continue;
+                    }
+                    killBeaten(v, hops, cost, distance);
+                    if (nextSize == next.length) {
+                        next = Arrays.copyOf(next, nextSize * 2);
+                    }
+                    next[nextSize++] = addLabel(v, cost, distance, hops, parent);
+                }
+            }
+            int[] swap = frontier;
+            frontier = next;
+            next = swap;
+            size = nextSize;
+        }
+
+        for (int l = bag(target); l != -1; l = labelNext[l]) {
+            if (!labelDead[l]) {
+                if (foundCount == found.length) {
+                    found = Arrays.copyOf(found, foundCount * 2);
+                }
+                found[foundCount++] = l;
+            }
+        }
+        return foundCount;
+    }
+
+    // Whether a live label at v is no worse than (cost, distance); such a
+    // label also has no more hops, since it was made in this round or earlier
+    private boolean dominated(int v, int cost, int distance) {
+        for (int l = bag(v); l != -1; l = labelNext[l]) {
+            if (!labelDead[l] && labelCost[l] <= cost && labelMiles[l] <= distance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Marks dead the labels of this round at v that (cost, distance) beats
+    private void killBeaten(int v, int hops, int cost, int distance) {
+        for (int l = bag(v); l != -1 && labelHops[l] == hops; l = labelNext[l]) {
+            if (cost <= labelCost[l] && distance <= labelMiles[l]) {
+                labelDead[l] = true;
+            }
+        }
+    }
+
+    private int bag(int v) {
+        return stamp[v] == epoch ? head[v] : -1;
+    }
+
+    private int addLabel(int v, int cost, int distance, int hops, int parent) {
+        if (labels == labelCost.length) {
+            int capacity = labels * 2;
+            labelCost = Arrays.copyOf(labelCost, capacity);
+            labelMiles = Arrays.copyOf(labelMiles, capacity);
+            labelHops = Arrays.copyOf(labelHops, capacity);
+            labelVertex = Arrays.copyOf(labelVertex, capacity);
+            labelParent = Arrays.copyOf(labelParent, capacity);
+            labelNext = Arrays.copyOf(labelNext, capacity);
+            labelDead = Arrays.copyOf(labelDead, capacity);
+        }
+        int l = labels++;
+        labelCost[l] = cost;
+        labelMiles[l] = distance;
+        labelHops[l] = hops;
+        labelVertex[l] = v;
+        labelParent[l] = parent;
+        labelNext[l] = bag(v);
+        labelDead[l] = false;
+        head[v] = l;
+        stamp[v] = epoch;
+        return l;
+    }
+
+    /**
+     * Return the label of the i-th route found by the last run. The
+     * routes are in no particular order.
+     * @param i the route number, below the count returned by run
+     * @return the label at the end of that route
+     */
+    public int route(int i) {
+        return found[i];
+    }
+
+    /**
+     * Return the total cost of the route ending in label l
+     * @param l a label
+     * @return its cost
+     */
+    public int cost(int l) {
+        return labelCost[l];
+    }
+
+    /**
+     * Return the total miles of the route ending in label l
+     * @param l a label
+     * @return its distance
+     */
+    public int miles(int l) {
+        return labelMiles[l];
+    }
+
+    /**
+     * Return the number of edges on the route ending in label l
+     * @param l a label
+     * @return its hop count
+     */
+    public int hops(int l) {
+        return labelHops[l];
+    }
+
+    /**
+     * Return the vertex label l belongs to
+     * @param l a label
+     * @return its vertex id
+     */
+    public int vertex(int l) {
+        return labelVertex[l];
+    }
+
+    /**
+     * Return the label that l extends by one edge
+     * @param l a label
+     * @return the previous label on its route, or -1 at the source
+     */
+    public int parent(int l) {
+        return labelParent[l];
+    }
+}
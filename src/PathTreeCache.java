@@ -0,0 +1,245 @@
+// A PathTreeCache class keeps recently used ShortestPathTrees keyed by
+// origin, so repeated queries from popular origins (hubs) skip the search.
+// The cache is split into stripes, each an access-ordered LinkedHashMap
+// guarded by its own lock, so threads asking about different origins
+// rarely wait for each other. Its size is bounded by a byte budget spread
+// evenly over the stripes; the least recently used tree of a full stripe
+// is evicted. Trees older than the time-to-live count as misses.
+// Every tree is tagged with the graph version it was computed for: when
+// the graph changes, repair brings the trees of the last version forward
+// instead of dropping them, and a tree of any other version is a miss.
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded, striped LRU cache of single-source shortest-path trees.
+ */
+public class PathTreeCache {
+
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long ttlNanos;
+    private final long stripeBudget; // byte budget of each stripe
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder repairs = new LongAdder();
+
+    private static final class Entry {
+        final ShortestPathTree tree;
+        final long created;
+        final long version; // graph version the tree belongs to
+
+        Entry(ShortestPathTree tree, long created, long version) {
+            this.tree = tree;
+            this.created = created;
+            this.version = version;
+        }
+    }
+
+    private static final class Stripe {
+        final LinkedHashMap<Integer, Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+        long bytes;
+    }
+
+    /**
+     * Creates an empty cache
+     * @param maxBytes the most memory the cached trees may use in total
+     * @param ttlMillis how long a tree stays valid, or 0 for no limit
+     */
+    public PathTreeCache(long maxBytes, long ttlMillis) {
+        stripeBudget = Math.max(1, maxBytes / STRIPES);
+        ttlNanos = ttlMillis <= 0 ? Long.MAX_VALUE : ttlMillis * 1_000_000L;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Returns the tree of origin in the given graph version, computing and
+     * caching it on a miss. Two threads missing on the same origin at once
+     * may both compute it.
+     * @param origin the source vertex id
+     * @param version the graph version the tree must belong to
+     * @param compute computes the tree of an origin in that version
+     * @return the tree of origin
+     */
+    public ShortestPathTree get(int origin, long version, IntFunction<ShortestPathTree> compute) {
+        Stripe stripe = stripes[origin & (STRIPES - 1)];
+        long now = System.nanoTime();
+        synchronized (stripe) {
+            Entry e = stripe.map.get(origin);
+            if (e != null && e.version == version) {
+                if (now - e.created < ttlNanos) {
+                    hits.increment();
+                    return e.tree;
+                }
+                stripe.map.remove(origin);
+                stripe.bytes -= e.tree.sizeInBytes();
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        ShortestPathTree tree = compute.apply(origin); // outside the lock
+        put(stripe, origin, new Entry(tree, System.nanoTime(), version));
+        return tree;
+    }
+
+    private void put(Stripe stripe, int origin, Entry entry) {
+        long size = entry.tree.sizeInBytes();
+        synchronized (stripe) {
+            Entry old = stripe.map.get(origin);
+            if (old != null && old.version > entry.version) {
+                return; // a newer tree was stored meanwhile
+            }
+            stripe.map.put(origin, entry);
+            if (old != null) {
+                stripe.bytes -= old.tree.sizeInBytes();
+            }
+            stripe.bytes += size;
+            Iterator<Map.Entry<Integer, Entry>> lru = stripe.map.entrySet().iterator();
+            while (stripe.bytes > stripeBudget && lru.hasNext()) {
+                Map.Entry<Integer, Entry> eldest = lru.next();
+                if (eldest.getKey() == origin) {
+                    continue; // keep the tree just added even if it alone is too large
+                }
+                stripe.bytes -= eldest.getValue().tree.sizeInBytes();
+                lru.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Moves the trees of graph version from to version to by applying
+     * repairer to each of them, outside the stripe locks. Trees of older
+     * versions are dropped. A tree replaced by a lookup while it was being
+     * repaired is left alone.
+     * @param from the version the graph changed from
+     * @param to the version it changed to
+     * @param repairer returns a tree updated for the change
+     */
+    public void repair(long from, long to, UnaryOperator<ShortestPathTree> repairer) {
+        List<Integer> origins = new ArrayList<>();
+        List<Entry> entries = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            origins.clear();
+            entries.clear();
+            synchronized (stripe) {
+                Iterator<Map.Entry<Integer, Entry>> it = stripe.map.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Integer, Entry> e = it.next();
+                    if (e.getValue().version == from) {
+                        origins.add(e.getKey());
+                        entries.add(e.getValue());
+                    } else if (e.getValue().version < from) {
+                        stripe.bytes -= e.getValue().tree.sizeInBytes();
+                        it.remove();
+                    }
+                }
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                Entry old = entries.get(i);
+                Entry repaired = new Entry(repairer.apply(old.tree), old.created, to);
+                synchronized (stripe) {
+                    Entry current = stripe.map.get(origins.get(i));
+                    if (current == old) {
+                        // same origin and size, so the byte count is unchanged
+                        stripe.map.put(origins.get(i), repaired);
+                        repairs.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every tree, e.g. after the graph they were computed on changed
+     */
+    public void invalidate() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.map.clear();
+                stripe.bytes = 0;
+            }
+        }
+    }
+
+    /**
+     * Return the number of trees in the cache
+     * @return the number of cached origins
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.map.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Return the memory used by the cached trees
+     * @return their approximate size in bytes
+     */
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                bytes += stripe.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Return the number of lookups answered from the cache
+     * @return the hit count
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Return the number of lookups that had to compute a tree
+     * @return the miss count
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Return the number of trees evicted to stay within the budget
+     * @return the eviction count
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Return the number of trees brought up to date after a graph change
+     * @return the repair count
+     */
+    public long repairCount() {
+        return repairs.sum();
+    }
+
+    /**
+     * Return the number of trees dropped because they outlived the ttl
+     * @return the expiration count
+     */
+    public long expirationCount() {
+        return expirations.sum();
+    }
+}
@@ -0,0 +1,440 @@
+// A PeriodGraph class keeps the fares of many years and quarters on one
+// route network. The routes (directed airport pairs) are stored once, as
+// the row offsets and destinations of a CSR graph, and each period adds a
+// single int column with one fare per route, so a new quarter costs 4
+// bytes per route rather than another copy of the graph. A route that was
+// not reported in a period holds NO_FARE in that column.
+//
+// Queries name one period, or a set of periods reduced to one fare per
+// route by their minimum or mean. The reduction and the per-period
+// summaries are plain loops over whole int columns with no branches on
+// the data, which the JIT compiles to SIMD code. The weights of a single
+// period are built into a CSRGraph view the first time it is queried;
+// views share the offsets and destinations unless some routes have no
+// fare in them. A PeriodGraph never changes, so any number of threads may
+// query it at once.
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A route network with a separate fare on every route for each period.
+ * Assumes that we do not have negative fares.
+ */
+public class PeriodGraph {
+
+    /** Fare of a route in a period that did not report it. */
+    public static final int NO_FARE = Integer.MAX_VALUE;
+
+    /**
+     * How the fares of a route in several periods are combined into one.
+     * Periods without a fare for the route are left out of both.
+     */
+    public enum Reduction {
+        /** The lowest fare of the periods. */
+        MIN,
+        /** The mean fare of the periods, rounded down. */
+        MEAN
+    }
+
+    /**
+     * The fares of one period over all of its routes
+     */
+    public static final class Summary {
+        // we use public fields here since this very simple class is
+        // used only for returning multiple results from summaries
+        public final String period;
+        public final int routes;   // routes with a fare in the period
+        public final int minFare;  // NO_FARE if routes is 0
+        public final int maxFare;  // -1 if routes is 0
+        public final double meanFare; // 0 if routes is 0
+
+        Summary(String period, int routes, int minFare, int maxFare, double meanFare) {
+            this.period = period;
+            this.routes = routes;
+            this.minFare = minFare;
+            this.maxFare = maxFare;
+            this.meanFare = meanFare;
+        }
+
+        @Override
+        public String toString() {
+            return period + ": " + routes + " routes, $" + minFare + "-$" + maxFare
+                    + ", mean $" + String.format("%.2f", meanFare);
+        }
+    }
+
+    private final SymbolTable symbols; // label to index, and the shared vertices
+    private final List<Vertex> vertices; // read-only, vertices.get(i) has index i
+    private final List<String> periods; // read-only, name of each period
+    private final int[] offsets; // row start of each vertex, length n+1
+    private final int[] targets; // destination of each route
+    private final int[][] fares; // fares[p][r] is the fare of route r in period p
+    private final View[] views; // per period, null until first queried
+
+    // The weights of one period over the shared routes, with its searches
+    private static final class View {
+        final CSRGraph csr;
+        final ScratchPool<DijkstraSearch> searches;
+
+        View(CSRGraph csr) {
+            this.csr = csr;
+            searches = new ScratchPool<>(() -> new DijkstraSearch(csr));
+        }
+    }
+
+    /**
+     * Creates a PeriodGraph from routes in CSR form and a fare column per
+     * period. The arrays are used as given and not copied.
+     * @param labels the label of each vertex index
+     * @param periods the name of each period, such as "2017Q2"
+     * @param offsets row starts, one more than the number of labels
+     * @param targets destination of each route, sorted within each row
+     * @param fares one column per period with the fare of each route,
+     *   NO_FARE where the period has none
+     * @throws IllegalArgumentException if the arrays are inconsistent, a
+     *   fare is negative, or a label repeats
+     */
+    public PeriodGraph(List<String> labels, List<String> periods, int[] offsets, int[] targets, int[][] fares) {
+        int n = labels.size();
+        if (offsets.length != n + 1 || offsets[0] != 0 || offsets[n] != targets.length
+                || fares.length != periods.size()) {
+            throw new IllegalArgumentException();
+        }
+        for (int v = 0; v < n; v++) {
+            for (int i = offsets[v], last = -1; i < offsets[v + 1]; i++) {
+                if (targets[i] <= last || targets[i] >= n) {
+                    throw new IllegalArgumentException();
+                }
+                last = targets[i];
+            }
+        }
+        for (int[] column : fares) {
+            if (column.length != targets.length) {
+                throw new IllegalArgumentException();
+            }
+            for (int fare : column) {
+                if (fare < 0) {
+                    throw new IllegalArgumentException("negative fare " + fare);
+                }
+            }
+        }
+        symbols = new SymbolTable();
+        for (String label : labels) {
+            if (symbols.intern(label) != symbols.size() - 1) {
+                throw new IllegalArgumentException("repeated label " + label);
+            }
+        }
+        vertices = symbols.vertices();
+        this.periods = Collections.unmodifiableList(new ArrayList<>(periods));
+        this.offsets = offsets;
+        this.targets = targets;
+        this.fares = fares;
+        views = new View[fares.length];
+    }
+
+    /**
+     * Return the vertices of this graph
+     * @return the vertices as a read-only list in index order
+     */
+    public List<Vertex> vertices() {
+        return vertices;
+    }
+
+    /**
+     * Return the names of the periods, in the order they are numbered
+     * @return a read-only list; period p is periods().get(p)
+     */
+    public List<String> periods() {
+        return periods;
+    }
+
+    /**
+     * Return the number of the period with the given name
+     * @param name a period name, such as "2017Q2"
+     * @return its number, or -1 if there is no such period
+     */
+    public int periodIndex(String name) {
+        return periods.indexOf(name);
+    }
+
+    /**
+     * Return the number of routes, whether or not every period has a fare
+     * for them
+     * @return the number of directed airport pairs
+     */
+    public int routeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Return the fare from a to b in a period
+     * @param a the departure airport
+     * @param b the arrival airport
+     * @param period a period number
+     * @return the fare, or -1 if there is no route or it has no fare in the
+     *   period
+     * @throws IllegalArgumentException if a or b does not exist
+     * @throws IndexOutOfBoundsException if there is no such period
+     */
+    public int fare(Vertex a, Vertex b, int period) {
+        int[] column = fares[period];
+        int i = routeIndex(index(a), index(b));
+        return i < 0 || column[i] == NO_FARE ? -1 : column[i];
+    }
+
+    /**
+     * Returns the adjacency of one period, with the routes that have a fare
+     * in it weighted by that fare. It is built on first use and then kept.
+     * @param period a period number
+     * @return the graph of the period
+     * @throws IndexOutOfBoundsException if there is no such period
+     */
+    public CSRGraph adjacency(int period) {
+        return view(period).csr;
+    }
+
+    /**
+     * Returns the adjacency of several periods, with the fares of each
+     * route reduced to one. Routes with no fare in any of the periods are
+     * left out.
+     * @param selected period numbers; repeats count more than once for MEAN
+     * @param reduction how the fares of a route are combined
+     * @return a new graph of the periods
+     * @throws IllegalArgumentException if no period is selected
+     * @throws IndexOutOfBoundsException if a period does not exist
+     */
+    public CSRGraph adjacency(int[] selected, Reduction reduction) {
+        if (selected.length == 0) {
+            throw new IllegalArgumentException("no period selected");
+        }
+        if (selected.length == 1) {
+            return adjacency(selected[0]);
+        }
+        return weighted(reduce(selected, reduction));
+    }
+
+    /**
+     * Returns the cheapest path from a to b using the fares of one period,
+     * with Dijkstra's algorithm
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @param period a period number
+     * @return a Path as returned by MyGraph.shortestPath, or null if b is
+     *   not reachable from a in the period
+     * @throws IllegalArgumentException if a or b does not exist
+     * @throws IndexOutOfBoundsException if there is no such period
+     */
+    public Path shortestPath(Vertex a, Vertex b, int period) {
+        int source = index(a);
+        int target = index(b);
+        View view = view(period);
+        DijkstraSearch search = view.searches.borrow();
+        try {
+            return pathTo(search, source, target);
+        } finally {
+            view.searches.release(search);
+        }
+    }
+
+    /**
+     * Returns the cheapest path from a to b using the fares of several
+     * periods reduced to one per route. Unlike a single period, the
+     * reduced weights are computed for every call.
+     * @param a the starting vertex
+     * @param b the destination vertex
+     * @param selected period numbers
+     * @param reduction how the fares of a route are combined
+     * @return a Path as returned by MyGraph.shortestPath, or null if b is
+     *   not reachable from a
+     * @throws IllegalArgumentException if a or b does not exist, or no
+     *   period is selected
+     * @throws IndexOutOfBoundsException if a period does not exist
+     */
+    public Path shortestPath(Vertex a, Vertex b, int[] selected, Reduction reduction) {
+        int source = index(a);
+        int target = index(b);
+        if (selected.length == 1) {
+            return shortestPath(a, b, selected[0]);
+        }
+        return pathTo(new DijkstraSearch(adjacency(selected, reduction)), source, target);
+    }
+
+    /**
+     * Uses Kruskal's algorithm to find a minimum spanning tree of one
+     * period, treating every route with a fare in it as undirected. If the
+     * routes do not connect every airport the result is a minimum spanning
+     * forest with one tree per component.
+     * @param period a period number
+     * @return Set of edges of the minimum spanning tree of the period
+     * @throws IndexOutOfBoundsException if there is no such period
+     */
+    public Set<Edge> getMinimumSpanningTreeEdges(int period) {
+        return spanningEdges(adjacency(period));
+    }
+
+    /**
+     * Uses Kruskal's algorithm to find a minimum spanning tree of several
+     * periods, with the fares of each route reduced to one
+     * @param selected period numbers
+     * @param reduction how the fares of a route are combined
+     * @return Set of edges of the minimum spanning tree of the periods
+     * @throws IllegalArgumentException if no period is selected
+     * @throws IndexOutOfBoundsException if a period does not exist
+     */
+    public Set<Edge> getMinimumSpanningTreeEdges(int[] selected, Reduction reduction) {
+        return spanningEdges(adjacency(selected, reduction));
+    }
+
+    /**
+     * Summarizes the fares of every period in one pass over its column
+     * @return one summary per period, in period order
+     */
+    public List<Summary> summaries() {
+        List<Summary> result = new ArrayList<>(fares.length);
+        for (int p = 0; p < fares.length; p++) {
+            int[] column = fares[p];
+            int routes = 0;
+            int min = NO_FARE;
+            int max = -1;
+            long sum = 0;
+            for (int i = 0; i < column.length; i++) {
+                int f = column[i];
+                int has = f == NO_FARE ? 0 : 1;
+                routes += has;
+                min = Math.min(min, f);
+                max = Math.max(max, f * has - (1 - has)); // -1 without a fare
+                sum += (long) f * has;
+            }
+            result.add(new Summary(periods.get(p), routes, min, max, routes == 0 ? 0 : (double) sum / routes));
+        }
+        return result;
+    }
+
+    // Returns the view of a period, building it on first use
+    private View view(int period) {
+        View view = views[period];
+        if (view == null) {
+            synchronized (views) {
+                view = views[period];
+                if (view == null) {
+                    view = new View(weighted(fares[period]));
+                    views[period] = view;
+                }
+            }
+        }
+        return view;
+    }
+
+    // Combines the columns of the selected periods into one fare per route,
+    // NO_FARE where none of them has one
+    private int[] reduce(int[] selected, Reduction reduction) {
+        int m = targets.length;
+        for (int p : selected) {
+            if (p < 0 || p >= fares.length) {
+                throw new IndexOutOfBoundsException("no period " + p);
+            }
+        }
+        if (reduction == Reduction.MIN) {
+            int[] result = Arrays.copyOf(fares[selected[0]], m);
+            for (int k = 1; k < selected.length; k++) {
+                int[] column = fares[selected[k]];
+                for (int i = 0; i < m; i++) {
+                    result[i] = Math.min(result[i], column[i]);
+                }
+            }
+            return result;
+        }
+        long[] sum = new long[m];
+        int[] count = new int[m];
+        for (int p : selected) {
+            int[] column = fares[p];
+            for (int i = 0; i < m; i++) {
+                int f = column[i];
+                int has = f == NO_FARE ? 0 : 1;
+                sum[i] += (long) f * has;
+                count[i] += has;
+            }
+        }
+        int[] result = new int[m];
+        for (int i = 0; i < m; i++) {
+            result[i] = count[i] == 0 ? NO_FARE : (int) (sum[i] / count[i]);
+        }
+        return result;
+    }
+
+    // Builds the graph of the routes with a fare in weights, sharing the
+    // offsets and destinations when every route has one
+    private CSRGraph weighted(int[] weights) {
+        int m = targets.length;
+        int kept = 0;
+        for (int i = 0; i < m; i++) {
+            kept += weights[i] == NO_FARE ? 0 : 1;
+        }
+        if (kept == m) {
+            return new CSRGraph(offsets, targets, weights);
+        }
+        int n = vertices.size();
+        int[] newOffsets = new int[n + 1];
+        int[] newTargets = new int[kept];
+        int[] newWeights = new int[kept];
+        int size = 0;
+        for (int v = 0; v < n; v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                if (weights[i] != NO_FARE) {
+                    newTargets[size] = targets[i];
+                    newWeights[size++] = weights[i];
+                }
+            }
+            newOffsets[v + 1] = size;
+        }
+        return new CSRGraph(newOffsets, newTargets, newWeights);
+    }
+
+    // Runs search from source to target and follows its predecessors back
+    private Path pathTo(DijkstraSearch search, int source, int target) {
+        int cost = search.run(source, target);
+        if (cost == DijkstraSearch.INFINITY) {
+            return null; // no path is found
+        }
+        LinkedList<Vertex> path = new LinkedList<>();
+        for (int v = target; v != -1; v = search.pred(v)) {
+            path.addFirst(vertices.get(v));
+        }
+        return new Path(path, cost);
+    }
+
+    // Turns the spanning forest of csr into Edge objects
+    private Set<Edge> spanningEdges(CSRGraph csr) {
+        int[] chosen = KruskalMST.spanningForest(csr, false);
+        int[] sources = csr.sources();
+        Set<Edge> result = new HashSet<>();
+        for (int e : chosen) {
+            result.add(new Edge(vertices.get(sources[e]), vertices.get(csr.targets[e]), csr.weights[e]));
+        }
+        return result;
+    }
+
+    // Returns the index of the route a -> b in the shared arrays, or -1
+    private int routeIndex(int a, int b) {
+        int i = Arrays.binarySearch(targets, offsets[a], offsets[a + 1], b);
+        return i < 0 ? -1 : i;
+    }
+
+    // Returns the id of v, checking that it is a vertex of this graph
+    private int index(Vertex v) {
+        int id = v == null ? -1 : v.getId();
+        if (id < 0 || id >= vertices.size() || vertices.get(id) != v) {
+            id = v == null ? -1 : symbols.find(v.getLabel());
+        }
+        if (id < 0) {
+            throw new IllegalArgumentException();
+        }
+        return id;
+    }
+}
@@ -0,0 +1,285 @@
+// A ReachabilityIndex class answers "is there any path from a to b" for a
+// CSRGraph without searching. Tarjan's algorithm, run with explicit int
+// stacks instead of recursion so deep graphs cannot overflow the call
+// stack, splits the vertices into strongly connected components (groups
+// of airports that can all reach each other). Tarjan numbers the
+// components in reverse topological order, so every edge between two
+// components leads to a lower number; a path from a to b therefore
+// needs comp(a) >= comp(b), and a and b must also share a weakly
+// connected component. On graphs with at most CLOSURE_LIMIT components
+// the index also keeps the transitive closure of the condensation DAG as
+// one bitset per component, and then every query is exact. All of this
+// takes O(V + E) time to build, plus the closure, and O(1) per query.
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Strongly connected components, condensation and reachability of a graph.
+ */
+public class ReachabilityIndex {
+
+    // largest number of components whose closure is kept, 8 MiB of bits
+    private static final int CLOSURE_LIMIT = 1 << 13;
+
+    private final int[] component;   // strongly connected component of each vertex
+    private final int[] weak;        // weakly connected component root of each vertex
+    private final int[] memberStart; // start of each component's members, length c+1
+    private final int[] members;     // vertices ordered by component
+    private final CSRGraph condensation; // edges between components, cheapest fare
+    private final long[][] closure;  // closure[c] has bit d if c reaches d; null if too large
+    private final int[] isolated;    // vertices without any edge in or out
+
+    /**
+     * Builds the index of graph
+     * @param graph the graph to index
+     */
+    public ReachabilityIndex(CSRGraph graph) {
+        int n = graph.vertexCount();
+        component = new int[n];
+        int count = tarjan(graph, component);
+
+        memberStart = new int[count + 1];
+        for (int v = 0; v < n; v++) {
+            memberStart[component[v] + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            memberStart[c + 1] += memberStart[c];
+        }
+        members = new int[n];
+        int[] next = Arrays.copyOf(memberStart, count);
+        for (int v = 0; v < n; v++) {
+            members[next[component[v]]++] = v;
+        }
+
+        // the edges between components, keeping the cheapest of each pair
+        int[] sources = graph.sources();
+        int m = graph.edgeCount();
+        int[] from = new int[m];
+        int[] to = new int[m];
+        int[] w = new int[m];
+        int k = 0;
+        UnionFind sets = new UnionFind(n);
+        int[] inDegree = new int[n];
+        for (int e = 0; e < m; e++) {
+            int cu = component[sources[e]];
+            int cv = component[graph.targets[e]];
+            sets.union(sources[e], graph.targets[e]);
+            inDegree[graph.targets[e]]++;
+            if (cu != cv) {
+                from[k] = cu;
+                to[k] = cv;
+                w[k++] = graph.weights[e];
+            }
+        }
+        condensation = cheapestPerPair(CSRGraph.fromEdges(count, from, to, w, k));
+        weak = new int[n];
+        int lonely = 0;
+        for (int v = 0; v < n; v++) {
+            weak[v] = sets.find(v);
+            if (inDegree[v] == 0 && graph.offsets[v] == graph.offsets[v + 1]) {
+                lonely++;
+            }
+        }
+        isolated = new int[lonely];
+        for (int v = 0, i = 0; v < n; v++) {
+            if (inDegree[v] == 0 && graph.offsets[v] == graph.offsets[v + 1]) {
+                isolated[i++] = v;
+            }
+        }
+        closure = count <= CLOSURE_LIMIT ? closure(condensation) : null;
+    }
+
+    // Numbers the strongly connected components of graph in reverse
+    // topological order into component and returns how many there are
+    private static int tarjan(CSRGraph graph, int[] component) {
+        int n = graph.vertexCount();
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] index = new int[n];   // visit order, -1 before the visit
+        int[] low = new int[n];     // lowest index reachable through the subtree
+        int[] edge = new int[n];    // next out-edge to follow from each vertex
+        int[] calls = new int[n];   // depth-first path, in place of recursion
+        int[] stack = new int[n];   // vertices not yet assigned a component
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+        int visited = 0;
+        int count = 0;
+        int depth = 0;
+        int top = 0;
+        for (int s = 0; s < n; s++) {
+            if (index[s] >= 0) {
+                continue;
+            }
+            index[s] = low[s] = visited++;
+            edge[s] = offsets[s];
+            stack[top++] = s;
+            onStack[s] = true;
+            calls[depth++] = s;
+            while (depth > 0) {
+                int v = calls[depth - 1];
+                if (edge[v] < offsets[v + 1]) {
+                    int w = targets[edge[v]++];
+                    if (index[w] < 0) { // descend into w
+                        index[w] = low[w] = visited++;
+                        edge[w] = offsets[w];
+                        stack[top++] = w;
+                        onStack[w] = true;
+                        calls[depth++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                depth--; // return from v
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--top];
+                        onStack[w] = false;
+                        component[w] = count;
+                    } while (w != v);
+                    count++;
+                }
+                if (depth > 0) {
+                    int parent = calls[depth - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+            }
+        }
+        return count;
+    }
+
+    // Keeps the cheapest of the edges between each pair of components;
+    // fromEdges leaves the edges of one pair next to each other
+    private static CSRGraph cheapestPerPair(CSRGraph edges) {
+        int n = edges.vertexCount();
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[edges.edgeCount()];
+        int[] weights = new int[edges.edgeCount()];
+        int kept = 0;
+        for (int v = 0; v < n; v++) {
+            for (int i = edges.offsets[v]; i < edges.offsets[v + 1]; i++) {
+                if (i > edges.offsets[v] && edges.targets[i] == edges.targets[i - 1]) {
+                    weights[kept - 1] = Math.min(weights[kept - 1], edges.weights[i]);
+                } else {
+                    targets[kept] = edges.targets[i];
+                    weights[kept++] = edges.weights[i];
+                }
+            }
+            offsets[v + 1] = kept;
+        }
+        return new CSRGraph(offsets, Arrays.copyOf(targets, kept), Arrays.copyOf(weights, kept));
+    }
+
+    // Computes which components each component reaches. Every edge leads
+    // to a lower number, so filling the bitsets in increasing order only
+    // ever reads finished ones.
+    private static long[][] closure(CSRGraph dag) {
+        int count = dag.vertexCount();
+        int words = (count + 63) >>> 6;
+        long[][] reach = new long[count][];
+        for (int c = 0; c < count; c++) {
+            long[] bits = new long[words];
+            bits[c >>> 6] |= 1L << c;
+            for (int i = dag.offsets[c]; i < dag.offsets[c + 1]; i++) {
+                long[] other = reach[dag.targets[i]];
+                for (int j = 0; j < words; j++) {
+                    bits[j] |= other[j];
+                }
+            }
+            reach[c] = bits;
+        }
+        return reach;
+    }
+
+    /**
+     * Tells whether there may be a path from a to b. False is always
+     * exact; true is exact whenever isExact() is.
+     * @param a the source vertex id
+     * @param b the destination vertex id
+     * @return false if b is certainly not reachable from a
+     */
+    public boolean mayReach(int a, int b) {
+        int ca = component[a];
+        int cb = component[b];
+        if (ca == cb) {
+            return true;
+        }
+        if (ca < cb || weak[a] != weak[b]) {
+            return false;
+        }
+        return closure == null || (closure[ca][cb >>> 6] & (1L << cb)) != 0;
+    }
+
+    /**
+     * Tells whether mayReach answers every query exactly, which it does
+     * unless the graph has more than 8192 strongly connected components
+     * @return true if the transitive closure is kept
+     */
+    public boolean isExact() {
+        return closure != null;
+    }
+
+    /**
+     * Return the number of strongly connected components
+     * @return the number of components
+     */
+    public int componentCount() {
+        return memberStart.length - 1;
+    }
+
+    /**
+     * Return the strongly connected component of a vertex. Components are
+     * numbered so that every edge between two of them leads to a lower
+     * number.
+     * @param v a vertex id
+     * @return its component number
+     */
+    public int component(int v) {
+        return component[v];
+    }
+
+    /**
+     * Return the vertices of a component
+     * @param c a component number
+     * @return the vertex ids of the component, in increasing order
+     */
+    public int[] members(int c) {
+        return Arrays.copyOfRange(members, memberStart[c], memberStart[c + 1]);
+    }
+
+    /**
+     * Return the components with more than one vertex, largest first
+     * @return the component numbers
+     */
+    public List<Integer> clusters() {
+        List<Integer> result = new ArrayList<>();
+        for (int c = 0; c < componentCount(); c++) {
+            if (memberStart[c + 1] - memberStart[c] > 1) {
+                result.add(c);
+            }
+        }
+        result.sort((x, y) -> Integer.compare(memberStart[y + 1] - memberStart[y],
+                memberStart[x + 1] - memberStart[x]));
+        return result;
+    }
+
+    /**
+     * Return the vertices that have no edge in or out
+     * @return their ids, in increasing order
+     */
+    public int[] isolated() {
+        return isolated.clone();
+    }
+
+    /**
+     * Return the condensation of the graph: one vertex per component, and
+     * an edge c -> d weighted by the cheapest edge from c to d
+     * @return the condensation DAG
+     */
+    public CSRGraph condensation() {
+        return condensation;
+    }
+}
@@ -0,0 +1,75 @@
+// A ScratchPool class lends out reusable search objects (scratch arrays)
+// to whichever thread needs one. Unlike a ThreadLocal it does not tie an
+// instance to a thread, so short-lived or virtual threads reuse the same
+// few instances instead of each allocating their own. Borrowing and
+// returning are lock-free and allocate nothing unless the pool is empty.
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * A bounded lock-free pool of reusable objects.
+ * @param <T> the type of pooled object
+ */
+public class ScratchPool<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final Supplier<T> factory;
+
+    /**
+     * Creates an empty pool holding at most twice as many idle objects as
+     * there are processors
+     * @param factory creates a new object when the pool is empty
+     */
+    public ScratchPool(Supplier<T> factory) {
+        this(2 * Runtime.getRuntime().availableProcessors(), factory);
+    }
+
+    /**
+     * Creates an empty pool
+     * @param capacity the largest number of idle objects kept
+     * @param factory creates a new object when the pool is empty
+     */
+    public ScratchPool(int capacity, Supplier<T> factory) {
+        slots = new AtomicReferenceArray<>(capacity);
+        this.factory = factory;
+    }
+
+    /**
+     * Takes an idle object from the pool, or creates one if there is none.
+     * The caller owns it until it calls release.
+     * @return an object for the exclusive use of the caller
+     */
+    public T borrow() {
+        int n = slots.length();
+        int start = home(n);
+        for (int k = 0; k < n; k++) {
+            int i = (start + k) % n;
+            T t = slots.get(i);
+            if (t != null && slots.compareAndSet(i, t, null)) {
+                return t;
+            }
+        }
+        return factory.get();
+    }
+
+    /**
+     * Returns an object to the pool. It is dropped if the pool is full.
+     * @param t an object obtained from borrow
+     */
+    public void release(T t) {
+        int n = slots.length();
+        int start = home(n);
+        for (int k = 0; k < n; k++) {
+            int i = (start + k) % n;
+            if (slots.get(i) == null && slots.compareAndSet(i, null, t)) {
+                return;
+            }
+        }
+    }
+
+    // Spreads threads over the slots so they rarely contend for one
+    private static int home(int n) {
+        return (int) (Thread.currentThread().getId() % n);
+    }
+}
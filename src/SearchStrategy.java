@@ -0,0 +1,13 @@
+/**
+ * The point-to-point search algorithms MyGraph can answer a query with.
+ */
+public enum SearchStrategy {
+    /** Dijkstra's algorithm from the source, stopping at the destination. */
+    DIJKSTRA,
+    /** Dijkstra's algorithm from both ends, over the edges and their reverse. */
+    BIDIRECTIONAL,
+    /** A* search guided by landmark lower bounds (ALT). */
+    LANDMARK,
+    /** Upward search from both ends over a contraction hierarchy. */
+    CONTRACTION_HIERARCHY
+}
@@ -0,0 +1,148 @@
+// A ShortestPathRepair class brings a ShortestPathTree up to date after
+// some edges of its graph were added, repriced or removed, without
+// searching the whole graph again. Only two kinds of vertices can change:
+// those whose tree path used an edge that got dearer or disappeared (the
+// subtree below that edge), and those an edge that got cheaper or was
+// added now leads to more cheaply. The first kind is reset and seeded with
+// its best way in from an unaffected neighbor; the second is seeded
+// directly; then a Dijkstra pass from those seeds relaxes only the
+// vertices whose cost actually changes. An instance keeps its scratch
+// arrays between repairs and is not thread-safe.
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Reusable dynamic single-source shortest-path update over a CSRGraph.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class ShortestPathRepair {
+
+    private static final int INFINITY = DijkstraSearch.INFINITY;
+
+    private final int[] affected; // vertices whose tree path was cut, in discovery order
+    private final int[] mark;     // repair in which a vertex was found affected
+    private final IndexedMinHeap heap;
+    private int epoch;
+    private int settled;
+
+    /**
+     * Creates a repairer with scratch space for graphs of n vertices
+     * @param n the number of vertices
+     */
+    public ShortestPathRepair(int n) {
+        affected = new int[n];
+        mark = new int[n];
+        heap = new IndexedMinHeap(n);
+    }
+
+    /**
+     * Returns tree updated for a set of edge changes. The given tree is not
+     * modified; the result has new arrays.
+     * Pre: tree is a shortest-path tree of the graph before the changes,
+     *   and graph is that graph with exactly these changes applied
+     * @param tree a tree of the graph before the changes
+     * @param graph the graph after the changes
+     * @param reverse supplies the reverse of graph; only called if some
+     *   vertex lost its tree path
+     * @param from source vertex of each changed edge
+     * @param to destination vertex of each changed edge
+     * @param cost new weight of each changed edge, or -1 if it was removed
+     * @param k number of changes used from the arrays
+     * @return the shortest-path tree of graph from the same origin
+     */
+    public ShortestPathTree repair(ShortestPathTree tree, CSRGraph graph, Supplier<CSRGraph> reverse,
+                                   int[] from, int[] to, int[] cost, int k) {
+        if (++epoch == 0) { // stamps wrapped around, start over
+            Arrays.fill(mark, 0);
+            epoch = 1;
+        }
+        heap.clear();
+        settled = 0;
+        int[] dist = tree.dist.clone();
+        int[] pred = tree.pred.clone();
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+
+        // The tree edge u -> v cost exactly dist[v] - dist[u]; if it now
+        // costs more or is gone, v and everything below it lose their path
+        int count = 0;
+        for (int c = 0; c < k; c++) {
+            int u = from[c];
+            int v = to[c];
+            if (pred[v] == u && mark[v] != epoch
+                    && (cost[c] < 0 || cost[c] > dist[v] - dist[u])) {
+                mark[v] = epoch;
+                affected[count++] = v;
+            }
+        }
+        for (int a = 0; a < count; a++) {
+            int x = affected[a];
+            for (int i = offsets[x], end = offsets[x + 1]; i < end; i++) {
+                int y = targets[i];
+                if (pred[y] == x && mark[y] != epoch) {
+                    mark[y] = epoch;
+                    affected[count++] = y;
+                }
+            }
+        }
+        for (int a = 0; a < count; a++) {
+            dist[affected[a]] = INFINITY;
+            pred[affected[a]] = -1;
+        }
+
+        // Seed each cut vertex with its cheapest way in from the rest
+        if (count > 0) {
+            CSRGraph backward = reverse.get();
+            for (int a = 0; a < count; a++) {
+                int x = affected[a];
+                for (int i = backward.offsets[x], end = backward.offsets[x + 1]; i < end; i++) {
+                    int p = backward.targets[i];
+                    if (mark[p] != epoch && dist[p] != INFINITY && dist[p] + backward.weights[i] < dist[x]) {
+                        dist[x] = dist[p] + backward.weights[i];
+                        pred[x] = p;
+                    }
+                }
+                if (dist[x] != INFINITY) {
+                    heap.offer(x, dist[x]);
+                }
+            }
+        }
+
+        // Seed the heads of edges that got cheaper or were added
+        for (int c = 0; c < k; c++) {
+            int u = from[c];
+            int v = to[c];
+            if (cost[c] >= 0 && dist[u] != INFINITY && dist[u] + cost[c] < dist[v]) {
+                dist[v] = dist[u] + cost[c];
+                pred[v] = u;
+                heap.offer(v, dist[v]);
+            }
+        }
+
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            settled++;
+            int d = dist[u];
+            for (int i = offsets[u], end = offsets[u + 1]; i < end; i++) {
+                int v = targets[i];
+                int nd = d + weights[i];
+                if (nd < dist[v]) {
+                    dist[v] = nd;
+                    pred[v] = u;
+                    heap.offer(v, nd);
+                }
+            }
+        }
+        return new ShortestPathTree(tree.origin, dist, pred);
+    }
+
+    /**
+     * Return the number of vertices settled by the last repair
+     * @return the number of vertices removed from the heap
+     */
+    public int settledCount() {
+        return settled;
+    }
+}
@@ -0,0 +1,51 @@
+// A ShortestPathTree class holds the result of a full single-source
+// search: the cheapest cost from one origin to every vertex and each
+// vertex's predecessor on its cheapest path. Any destination's path is
+// then a walk up the predecessor array.
+
+/**
+ * Costs and predecessors of every vertex from one origin.
+ */
+public class ShortestPathTree {
+
+    public final int origin;
+    public final int[] dist; // cost from origin, DijkstraSearch.INFINITY if unreachable
+    public final int[] pred; // vertex before each vertex on its path, -1 for none
+
+    /**
+     * Creates a tree from its arrays, which are used as given
+     * @param origin the source vertex id
+     * @param dist cost of every vertex
+     * @param pred predecessor of every vertex
+     */
+    public ShortestPathTree(int origin, int[] dist, int[] pred) {
+        this.origin = origin;
+        this.dist = dist;
+        this.pred = pred;
+    }
+
+    /**
+     * Copies the tree out of a search that has run to completion
+     * Pre: search.run(origin, -1) was the last run of search
+     * @param search the finished search
+     * @return the tree of its source
+     */
+    public static ShortestPathTree of(DijkstraSearch search) {
+        int n = search.graph().vertexCount();
+        int[] dist = new int[n];
+        int[] pred = new int[n];
+        for (int v = 0; v < n; v++) {
+            dist[v] = search.dist(v);
+            pred[v] = search.pred(v);
+        }
+        return new ShortestPathTree(search.source(), dist, pred);
+    }
+
+    /**
+     * Return the number of bytes the tree's arrays occupy
+     * @return the approximate heap size of the tree
+     */
+    public long sizeInBytes() {
+        return 8L * dist.length + 64;
+    }
+}
@@ -0,0 +1,123 @@
+// A SpurSearch class is a point-to-point Dijkstra search that can be told
+// to avoid some vertices and some edges, as the spur searches of Yen's
+// k-shortest-paths algorithm must. Blocks are stamped arrays like the
+// search scratch, so clearing them is O(1), and an instance allocates
+// nothing after construction. It is kept apart from DijkstraSearch so the
+// plain search does not pay for the block checks. An instance is not
+// thread-safe.
+
+import java.util.Arrays;
+
+/**
+ * Reusable Dijkstra search over a CSRGraph with blocked vertices and edges.
+ * Assumes that we do not have negative cost edges in the graph.
+ */
+public class SpurSearch {
+
+    private static final int INFINITY = DijkstraSearch.INFINITY;
+
+    private final CSRGraph graph;
+    private final int[] dist;         // tentative or final cost of each vertex
+    private final int[] pred;         // predecessor of each vertex, -1 for none
+    private final int[] stamp;        // run in which dist/pred were last written
+    private final int[] blockedVertex; // block round in which a vertex was blocked
+    private final int[] blockedEdge;   // block round in which a CSR edge was blocked
+    private final IndexedMinHeap heap;
+    private int epoch;
+    private int blockEpoch = 1;
+
+    /**
+     * Creates a search with scratch space for every vertex and edge of graph
+     * @param graph the graph to search
+     */
+    public SpurSearch(CSRGraph graph) {
+        this.graph = graph;
+        int n = graph.vertexCount();
+        dist = new int[n];
+        pred = new int[n];
+        stamp = new int[n];
+        blockedVertex = new int[n];
+        blockedEdge = new int[graph.edgeCount()];
+        heap = new IndexedMinHeap(n);
+    }
+
+    /**
+     * Unblocks every vertex and edge
+     */
+    public void clearBlocks() {
+        if (++blockEpoch == 0) { // stamps wrapped around, start over
+            Arrays.fill(blockedVertex, 0);
+            Arrays.fill(blockedEdge, 0);
+            blockEpoch = 1;
+        }
+    }
+
+    /**
+     * Keeps later runs from entering vertex v
+     * @param v a vertex id
+     */
+    public void blockVertex(int v) {
+        blockedVertex[v] = blockEpoch;
+    }
+
+    /**
+     * Keeps later runs from using an edge
+     * @param edge the index of the edge in the graph's targets array
+     */
+    public void blockEdge(int edge) {
+        blockedEdge[edge] = blockEpoch;
+    }
+
+    /**
+     * Finds the cheapest path from source to target that avoids the
+     * blocked vertices and edges
+     * @param source the starting vertex id, which must not be blocked
+     * @param target the destination vertex id
+     * @return the cost, or DijkstraSearch.INFINITY if target is not reachable
+     */
+    public int run(int source, int target) {
+        if (++epoch == 0) { // stamps wrapped around, start over
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        heap.clear();
+
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+        stamp[source] = epoch;
+        dist[source] = 0;
+        pred[source] = -1;
+        heap.offer(source, 0);
+        while (!heap.isEmpty()) {
+            int d = heap.peekKey();
+            int u = heap.poll();
+            if (u == target) {
+                return d;
+            }
+            for (int i = offsets[u], end = offsets[u + 1]; i < end; i++) {
+                int v = targets[i];
+                if (blockedEdge[i] == blockEpoch || blockedVertex[v] == blockEpoch) {
+                    continue;
+                }
+                int nd = d + weights[i];
+                if (stamp[v] != epoch || nd < dist[v]) {
+                    stamp[v] = epoch;
+                    dist[v] = nd;
+                    pred[v] = u;
+                    heap.offer(v, nd);
+                }
+            }
+        }
+        return INFINITY;
+    }
+
+    /**
+     * Return the predecessor of v on the path found by the last run
+     * @param v a vertex id
+     * @return the vertex before v, or -1 if v is the source or not reached
+     */
+    public int pred(int v) {
+        return stamp[v] == epoch ? pred[v] : -1;
+    }
+}
@@ -0,0 +1,195 @@
+// A SymbolTable class interns labels such as IATA airport codes into
+// dense int ids 0, 1, 2, ... in order of first appearance, and keeps one
+// shared Vertex per label that carries its id, so a graph never holds two
+// Vertex objects for the same airport. Lookups use an open-addressing hash
+// table and allocate only when a label is seen for the first time.
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps text labels to dense int ids and flyweight vertices, and back.
+ */
+public class SymbolTable {
+
+    private int[] slots = new int[64]; // id + 1 of the label hashed here, 0 if empty
+    private byte[][] keys = new byte[32][]; // single-byte form of each label, null if it has none
+    private int[] hashes = new int[32];
+    private Vertex[] vertices = new Vertex[32];
+    private int size;
+
+    /**
+     * Returns the id of the label in buf[off, off+len), read as single-byte
+     * (ISO-8859-1) text, adding it if new
+     * @param buf bytes holding the label
+     * @param off start of the label
+     * @param len length of the label
+     * @return the id of the label
+     */
+    public int intern(byte[] buf, int off, int len) {
+        int h = mix(hash(buf, off, len));
+        int mask = slots.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int s = slots[i];
+            if (s == 0) {
+                byte[] key = Arrays.copyOfRange(buf, off, off + len);
+                return add(key, new String(key, StandardCharsets.ISO_8859_1), h, i);
+            }
+            byte[] key = keys[s - 1];
+            if (hashes[s - 1] == h && key != null && Arrays.equals(key, 0, key.length, buf, off, off + len)) {
+                return s - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of label, adding it if new
+     * @param label a label
+     * @return the id of the label
+     */
+    public int intern(String label) {
+        int h = mix(hash(label));
+        int mask = slots.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int s = slots[i];
+            if (s == 0) {
+                return add(singleByte(label), label, h, i);
+            }
+            if (hashes[s - 1] == h && vertices[s - 1].getLabel().equals(label)) {
+                return s - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of label without adding it
+     * @param label a label
+     * @return the id of the label, or -1 if it was never interned
+     */
+    public int find(String label) {
+        int h = mix(hash(label));
+        int mask = slots.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int s = slots[i];
+            if (s == 0) {
+                return -1;
+            }
+            if (hashes[s - 1] == h && vertices[s - 1].getLabel().equals(label)) {
+                return s - 1;
+            }
+        }
+    }
+
+    private int add(byte[] key, String label, int h, int slot) {
+        int id = size;
+        if (id == keys.length) {
+            keys = Arrays.copyOf(keys, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+            vertices = Arrays.copyOf(vertices, id * 2);
+        }
+        keys[id] = key;
+        hashes[id] = h;
+        vertices[id] = new Vertex(label, id);
+        size++;
+        slots[slot] = id + 1;
+        if (2 * size > slots.length) { // keep the load factor under 1/2
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = id + 1;
+        }
+    }
+
+    // Returns the ISO-8859-1 bytes of label, or null if it has a wider char
+    private static byte[] singleByte(String label) {
+        for (int i = 0; i < label.length(); i++) {
+            if (label.charAt(i) > 0xff) {
+                return null; // only found by String lookups
+            }
+        }
+        return label.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    // FNV-1a over the bytes
+    private static int hash(byte[] buf, int off, int len) {
+        int h = 0x811c9dc5;
+        for (int i = off; i < off + len; i++) {
+            h = (h ^ (buf[i] & 0xff)) * 0x01000193;
+        }
+        return h;
+    }
+
+    // FNV-1a over the chars, equal to the byte hash of single-byte text
+    private static int hash(String label) {
+        int h = 0x811c9dc5;
+        for (int i = 0; i < label.length(); i++) {
+            h = (h ^ label.charAt(i)) * 0x01000193;
+        }
+        return h;
+    }
+
+    // Mixes the high bits into the low ones for the power-of-two table
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Return the label with the given id
+     * @param id an id returned by intern
+     * @return its label
+     */
+    public String label(int id) {
+        return vertex(id).getLabel();
+    }
+
+    /**
+     * Return the shared vertex with the given id
+     * @param id an id returned by intern
+     * @return the vertex whose getId() is id
+     */
+    public Vertex vertex(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException(id);
+        }
+        return vertices[id];
+    }
+
+    /**
+     * Return a read-only view of the shared vertices in id order. The view
+     * grows as new labels are interned.
+     * @return the vertices, where get(i) has id i
+     */
+    public List<Vertex> vertices() {
+        return new AbstractList<Vertex>() {
+            @Override
+            public Vertex get(int index) {
+                return vertex(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Return the number of distinct labels
+     * @return the number of labels interned so far
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,71 @@
+// A UnionFind class tracks a partition of dense int ids into disjoint
+// sets in two primitive arrays, using path halving and union by rank so
+// that every operation runs in nearly constant amortized time.
+
+/**
+ * Disjoint-set forest over the ids 0 .. n-1.
+ */
+public class UnionFind {
+
+    private final int[] parent;
+    private final byte[] rank; // upper bound on the height of each root's tree
+    private int sets;
+
+    /**
+     * Creates n singleton sets
+     * @param n the number of ids
+     */
+    public UnionFind(int n) {
+        parent = new int[n];
+        rank = new byte[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+        sets = n;
+    }
+
+    /**
+     * Returns the representative of the set containing x
+     * @param x an id
+     * @return the root of x's set
+     */
+    public int find(int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]]; // path halving
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /**
+     * Merges the sets containing a and b
+     * @param a an id
+     * @param b another id
+     * @return false if a and b were already in the same set
+     */
+    public boolean union(int a, int b) {
+        int ra = find(a);
+        int rb = find(b);
+        if (ra == rb) {
+            return false;
+        }
+        if (rank[ra] < rank[rb]) {
+            parent[ra] = rb;
+        } else if (rank[ra] > rank[rb]) {
+            parent[rb] = ra;
+        } else {
+            parent[rb] = ra;
+            rank[ra]++;
+        }
+        sets--;
+        return true;
+    }
+
+    /**
+     * Return the number of disjoint sets
+     * @return the number of sets
+     */
+    public int setCount() {
+        return sets;
+    }
+}
@@ -3,15 +3,22 @@
  */
 public class Vertex {
 	private final String label;   // label attached to this vertex
+	private final int id;         // dense id given by a SymbolTable, -1 if none
 
 	/**
 	 * Construct a new vertex
 	 * @param label the label attached to this vertex
 	 */
 	public Vertex(String label) {
+		this(label, -1);
+	}
+
+	// Constructs the shared vertex of a SymbolTable label
+	Vertex(String label, int id) {
 		if(label == null)
 			throw new IllegalArgumentException("null");
 		this.label = label;
+		this.id = id;
 	}
 
 	/**
@@ -21,6 +28,15 @@ public class Vertex {
 	public String getLabel() {
 		return label;
 	}
+
+	/**
+	 * Get the dense id of a vertex interned by a SymbolTable. The id does
+	 * not take part in equals, which compares labels only.
+	 * @return the id of this vertex, or -1 if it was created directly
+	 */
+	public int getId() {
+		return id;
+	}
 	
 	/**
 	 * A string representation of this object
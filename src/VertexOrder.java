@@ -0,0 +1,12 @@
+/**
+ * The vertex numberings GraphLayout can give a graph, each meant to put
+ * vertices that are searched together close to each other in memory.
+ */
+public enum VertexOrder {
+    /** Breadth-first from the busiest airport of each component. */
+    BFS,
+    /** Reverse Cuthill-McKee: breadth-first from a least-connected airport, visiting neighbors by degree, reversed. */
+    REVERSE_CUTHILL_MCKEE,
+    /** Busiest airports first, so hubs and their rows share cache lines. */
+    DEGREE_DESCENDING
+}
@@ -0,0 +1,76 @@
+// Tests of the precomputed all-pairs paths behind MyGraph.lookupPath.
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class AllPairsTableTest {
+
+    // V1 -> V5 -> V1 costs nothing, so V1's and V5's searches may break the
+    // tie for V4 differently; chaining first hops across rows used to
+    // bounce between V1 and V5 until the heap ran out
+    private static MyGraph zeroCostCycle() {
+        List<Vertex> v = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            v.add(new Vertex("V" + i));
+        }
+        int[][] edges = {
+            {7, 3, 2}, {8, 6, 2}, {5, 8, 2}, {3, 7, 0}, {7, 6, 0}, {8, 4, 0}, {1, 5, 0}, {1, 2, 2},
+            {5, 6, 1}, {6, 3, 1}, {3, 4, 2}, {2, 4, 0}, {5, 1, 0}, {4, 6, 2}, {7, 5, 2},
+        };
+        List<Edge> e = new ArrayList<>();
+        for (int[] edge : edges) {
+            e.add(new Edge(v.get(edge[0] - 1), v.get(edge[1] - 1), edge[2]));
+        }
+        return new MyGraph(v, e);
+    }
+
+    @Test
+    public void lookupPathFollowsOneTreeAcrossZeroCostCycle() {
+        MyGraph graph = zeroCostCycle();
+        Path path = graph.lookupPath(graph.vertex("V1"), graph.vertex("V4"));
+        assertNotNull(path);
+        assertEquals(2, path.cost);
+        assertEquals(graph.vertex("V1"), path.vertices.get(0));
+        assertEquals(graph.vertex("V4"), path.vertices.get(path.vertices.size() - 1));
+    }
+
+    @Test
+    public void lookupPathMatchesShortestPathForEveryPair() {
+        MyGraph graph = zeroCostCycle();
+        for (Vertex a : graph.vertices()) {
+            for (Vertex b : graph.vertices()) {
+                Path expected = graph.shortestPath(a, b);
+                Path found = graph.lookupPath(a, b);
+                if (expected == null) {
+                    assertNull(found, a + " -> " + b);
+                    continue;
+                }
+                assertNotNull(found, a + " -> " + b);
+                assertEquals(expected.cost, found.cost, a + " -> " + b);
+                int sum = 0;
+                for (int i = 1; i < found.vertices.size(); i++) {
+                    sum += graph.edgeCost(found.vertices.get(i - 1), found.vertices.get(i));
+                }
+                assertEquals(found.cost, sum, a + " -> " + b);
+            }
+        }
+    }
+
+    @Test
+    public void pathWalkStopsOnCyclicPredecessors() {
+        MyGraph graph = zeroCostCycle();
+        int n = graph.vertices().size();
+        int[] predecessors = new int[n];
+        for (int v = 0; v < n; v++) {
+            predecessors[v] = (v + 1) % n; // never reaches -1
+        }
+        assertThrows(IllegalStateException.class,
+                () -> graph.matrixPath(predecessors, 0, graph.vertex("V1"), 0));
+    }
+}
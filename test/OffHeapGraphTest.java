@@ -0,0 +1,77 @@
+// Tests of OffHeapGraph against MyGraph, and of the checks made when a
+// snapshot is mapped.
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class OffHeapGraphTest {
+
+    private static final List<String> LABELS = Arrays.asList("A", "B", "C", "D", "E", "F");
+
+    // Two components, zero fares, and vertices without out-edges
+    private static MyGraph graph() {
+        int[] from = {0, 0, 1, 2, 2, 4};
+        int[] to = {1, 2, 2, 0, 3, 5};
+        int[] w = {4, 1, 0, 0, 7, 2};
+        return new MyGraph(LABELS, from, to, w, from.length);
+    }
+
+    @Test
+    public void shortestPathsMatchMyGraph() {
+        MyGraph graph = graph();
+        OffHeapGraph offHeap = new OffHeapGraph(LABELS, graph.adjacency());
+        for (int a = 0; a < LABELS.size(); a++) {
+            for (int b = 0; b < LABELS.size(); b++) {
+                Path expected = graph.shortestPath(graph.vertexAt(a), graph.vertexAt(b));
+                Path found = offHeap.shortestPath(offHeap.vertexAt(a), offHeap.vertexAt(b));
+                if (expected == null) {
+                    assertNull(found, a + " -> " + b);
+                } else {
+                    assertEquals(expected.cost, found.cost, a + " -> " + b);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void spanningForestMatchesMyGraph() {
+        MyGraph graph = graph();
+        OffHeapGraph offHeap = new OffHeapGraph(LABELS, graph.adjacency());
+        assertEquals(totalWeight(graph.getMinimumSpanningTreeEdges()),
+                totalWeight(offHeap.getMinimumSpanningTreeEdges()));
+        assertEquals(graph.getMinimumSpanningTreeEdges().size(), offHeap.getMinimumSpanningTreeEdges().size());
+    }
+
+    @Test
+    public void mapRejectsNegativeWeight() throws IOException {
+        java.nio.file.Path file = Files.createTempFile("offheap", ".graph");
+        try {
+            GraphSnapshot.write(graph(), file);
+            // the first weight follows the 16-byte header, 7 offsets and 6 targets
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(4).putInt(0, -1), 16 + 4 * (7 + 6));
+            }
+            assertThrows(IOException.class, () -> GraphSnapshot.map(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long totalWeight(Iterable<Edge> edges) {
+        long sum = 0;
+        for (Edge e : edges) {
+            sum += e.getWeight();
+        }
+        return sum;
+    }
+}